@@ -0,0 +1,73 @@
+package jogger.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import jogger.Jogger;
+
+/**
+ * This class contains the utilities shared by the benchmarks,
+ * every trial write in its own directory under the log directory and delete it at the end
+ * @author Andrea Serra
+ *
+ */
+final class BenchmarkLogs {
+	static final String BENCH_DIR = "jogger-bench";
+	static final String LINE = "benchmark line with a payload of a common length for an application log";
+
+	/* stream that discard the output of the loggers that print on the console */
+	static final PrintStream NULL_STREAM = new PrintStream(OutputStream.nullOutputStream());
+
+	private BenchmarkLogs() {
+	}
+
+	/**
+	 * method that get a directory split for a new trial
+	 * @param name of benchmark
+	 * @return split of directory, relative to the log directory
+	 */
+	static String[] newSplitDir(String name) {
+		return new String[] {BENCH_DIR, name + "-" + System.nanoTime()};
+	}
+
+	/**
+	 * method that configure a logger on a new directory
+	 * @param jogger to be configured
+	 * @param name of log
+	 * @return the logger
+	 */
+	static <T extends Jogger> T configure(T jogger, String name) {
+		jogger.setLogName(name);
+		jogger.setSplitLogDir(newSplitDir(name));
+		return jogger;
+	}
+
+	/**
+	 * method that close a logger and delete its directory
+	 * @param jogger to be closed
+	 * @throws IOException
+	 */
+	static void dispose(Jogger jogger) throws IOException {
+		jogger.close();
+		deleteDir(Paths.get(Jogger.getLogDirPath(jogger.getSplitLogDir())));
+	}
+
+	/**
+	 * method that delete a directory with its content
+	 * @param dir to be deleted
+	 * @throws IOException
+	 */
+	static void deleteDir(Path dir) throws IOException {
+		if (!Files.exists(dir)) return;
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+}
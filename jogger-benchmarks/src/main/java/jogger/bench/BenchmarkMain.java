@@ -0,0 +1,44 @@
+package jogger.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class run the benchmarks with the options of JMH command line.
+ * If not specified the results are written on jmh-result.json
+ * and the gc profiler is enabled, to track the allocation rate across the releases
+ * @author Andrea Serra
+ *
+ */
+public final class BenchmarkMain {
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		if (cmdOptions.shouldList()) {
+			new Runner(cmdOptions).list();
+			return;
+		}
+
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+		if (!cmdOptions.getResultFormat().hasValue()) builder.resultFormat(ResultFormatType.JSON);
+		if (!cmdOptions.getResult().hasValue()) builder.result(DEFAULT_RESULT_FILE);
+		if (cmdOptions.getProfilers().isEmpty()) builder.addProfiler(GCProfiler.class);
+		new Runner(builder.build()).run();
+	}
+}
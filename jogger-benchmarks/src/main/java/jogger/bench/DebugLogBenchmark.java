@@ -0,0 +1,101 @@
+package jogger.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jogger.JoggerDebug;
+
+/**
+ * This class measure JoggerDebug.writeLog with the debug disabled and enabled.
+ * With the debug disabled the calls must not allocate, run it with the gc profiler
+ * to check the allocation rate (gc.alloc.rate.norm).
+ * With a rate limit almost every entry is suppressed, it measure the cost of the admission
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class DebugLogBenchmark {
+	@Param({"false", "true"})
+	public boolean debug;
+
+	@Param({"false", "true"})
+	public boolean printStackTrace;
+
+	/* 0 for no rate limit */
+	@Param({"0", "1000"})
+	public double rateLimit;
+
+	private JoggerDebug jogger;
+	private PrintStream out;
+	private int counter = 0;
+	private String user = "user";
+	private String action = "login";
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jogger = BenchmarkLogs.configure(new JoggerDebug(), "debug");
+		jogger.setDebug(debug);
+		jogger.setPrintStackTrace(printStackTrace);
+		jogger.setMaxSizeBytes(16 * 1024 * 1024);
+		jogger.setMaxSegments(4);
+		if (rateLimit > 0) jogger.setRateLimit(rateLimit, 100, 1);
+
+		/* the debug entries are printed also on the console */
+		out = System.out;
+		System.setOut(BenchmarkLogs.NULL_STREAM);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.setOut(out);
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	public void plain() {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	public void templatePrimitive() {
+		jogger.writeLog("request number {0}", counter++);
+	}
+
+	@Benchmark
+	public void templateObjects() {
+		jogger.writeLog("user {0} action {1}", user, action);
+	}
+
+	@Benchmark
+	public void supplier() {
+		jogger.writeLog(() -> "user " + user + " action " + action);
+	}
+
+	/* the concatenation is done by the caller also with the debug disabled */
+	@Benchmark
+	public void concatenation() {
+		jogger.writeLog("user " + user + " action " + action);
+	}
+}
@@ -0,0 +1,88 @@
+package jogger.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.LockLogException;
+import exception.LogFileException;
+import jogger.JoggerError;
+
+/**
+ * This class measure JoggerError with the active segment already filled,
+ * the write of an exception and the read of the newest entries must not depend from the size of file.
+ * With the deduplication the same exception is written once and then only counted
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ErrorLogBenchmark {
+	private static final int MAX_SIZE_BYTES = 256 * 1024 * 1024;
+
+	@Param({"0", "1048576", "67108864"})
+	public long fileSizeBytes;
+
+	@Param({"0", "60000"})
+	public long dedupWindowMillis;
+
+	private JoggerError jogger;
+	private PrintStream err;
+	private Exception exception;
+
+	@Setup(Level.Trial)
+	public void setup() throws LockLogException, LogFileException {
+		jogger = BenchmarkLogs.configure(new JoggerError(), "error");
+		jogger.setMaxSizeBytes(MAX_SIZE_BYTES);
+		jogger.setMaxSegments(2);
+		exception = new IllegalStateException("benchmark exception");
+
+		/* the exceptions are printed also on the console */
+		err = System.err;
+		System.setErr(BenchmarkLogs.NULL_STREAM);
+
+		/* fill the active segment before the measure, without deduplication */
+		jogger.setDedupWindowMillis(0);
+		File file = jogger.getFile();
+		while (file.length() < fileSizeBytes) jogger.writeLog(exception);
+		jogger.setDedupWindowMillis(dedupWindowMillis);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.setErr(err);
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	public void writeException() throws LockLogException {
+		jogger.writeLog(exception);
+	}
+
+	@Benchmark
+	public List<String> readNewestEntries() throws LogFileException {
+		return jogger.readNewestEntries(10);
+	}
+}
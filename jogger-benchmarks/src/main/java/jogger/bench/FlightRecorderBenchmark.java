@@ -0,0 +1,70 @@
+package jogger.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jogger.FlightRecorder;
+import jogger.JoggerDebug;
+
+/**
+ * This class measure JoggerDebug.writeLog with the debug disabled and the flight recorder enabled,
+ * the entries are only recorded in memory. The threads measure the contention on the ring
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlightRecorderBenchmark {
+	@Param({"false", "true"})
+	public boolean flightRecorder;
+
+	private JoggerDebug jogger;
+	private FlightRecorder recorder;
+	private String user = "user";
+	private String action = "login";
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jogger = BenchmarkLogs.configure(new JoggerDebug(), "flight");
+		recorder = new FlightRecorder("flight", 1 << 20);
+		recorder.getDumpLog().setSplitLogDir(jogger.getSplitLogDir());
+		if (flightRecorder) jogger.setFlightRecorder(recorder);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		recorder.close();
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void templateObjects() {
+		jogger.writeLog("user {0} action {1}", user, action);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void templateObjectsThreads04() {
+		jogger.writeLog("user {0} action {1}", user, action);
+	}
+}
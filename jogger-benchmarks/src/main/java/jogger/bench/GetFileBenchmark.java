@@ -0,0 +1,97 @@
+package jogger.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.LogFileException;
+import jogger.Jogger;
+
+/**
+ * This class measure the lookup of active segment with a growing number of segments on the directory.
+ * The getFile of an opened logger must be constant, the first open and the list of segments scan the directory
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class GetFileBenchmark {
+	@Param({"10", "100", "1000", "10000"})
+	public int segments;
+
+	private String[] splitDir;
+	private Jogger jogger;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, LogFileException {
+		splitDir = BenchmarkLogs.newSplitDir("getfile");
+		File dir = new File(Jogger.getLogDirPath(splitDir));
+		Files.createDirectories(dir.toPath());
+		byte[] line = (BenchmarkLogs.LINE + "\n").getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < segments; i++) {
+			try (FileOutputStream out = new FileOutputStream(new File(dir, String.format("log_getfile-%06d.log", i)))) {
+				out.write(line);
+			}
+		}
+
+		jogger = newJogger();
+		jogger.getFile();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	public File getFile() throws LogFileException {
+		return jogger.getFile();
+	}
+
+	@Benchmark
+	public List<File> getSegments() throws LogFileException {
+		return jogger.getSegments();
+	}
+
+	@Benchmark
+	public File openAndGetFile() throws LogFileException {
+		Jogger opened = newJogger();
+		try {
+			return opened.getFile();
+		} finally {
+			opened.close();
+		}
+	}
+
+	/* method that create a logger on the directory filled */
+	private Jogger newJogger() {
+		Jogger newJogger = new Jogger();
+		newJogger.setLogName("getfile");
+		newJogger.setSplitLogDir(splitDir);
+		return newJogger;
+	}
+}
@@ -0,0 +1,77 @@
+package jogger.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jogger.Jogger;
+
+/**
+ * This class measure the write of a line with a RandomAccessFile opened for every line,
+ * as the logger did before the writers of segments. It is the baseline of WriteLogBenchmark
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class RandomAccessFileBenchmark {
+	private static final long MAX_SIZE_BYTES = 16 * 1024 * 1024;
+	private static final String LINE = BenchmarkLogs.LINE + "\n";
+
+	private String[] splitDir;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		splitDir = BenchmarkLogs.newSplitDir("raf");
+		File dir = new File(Jogger.getLogDirPath(splitDir));
+		Files.createDirectories(dir.toPath());
+		file = new File(dir, "log_raf-000000.log");
+	}
+
+	/* the file is truncated as a rotation, the trial never fill the disk */
+	@Setup(Level.Iteration)
+	public void truncate() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkLogs.deleteDir(Paths.get(Jogger.getLogDirPath(splitDir)));
+	}
+
+	@Benchmark
+	public void writeBytes() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long length = raf.length();
+			if (length > MAX_SIZE_BYTES) {
+				raf.setLength(0);
+				length = 0;
+			}
+			raf.seek(length);
+			raf.writeBytes(LINE);
+		}
+	}
+}
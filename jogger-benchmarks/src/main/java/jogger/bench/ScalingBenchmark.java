@@ -0,0 +1,107 @@
+package jogger.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.LockLogException;
+import jogger.Jogger;
+
+/**
+ * This class measure how the throughput of Jogger.writeLog scale from 1 to 64 threads,
+ * with the lock, the async mode and the striped mode.
+ * The lines are written without drops, the producers wait when the buffers are full
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+	@Param({"LOCK", "ASYNC", "STRIPED"})
+	public String mode;
+
+	private Jogger jogger;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jogger = BenchmarkLogs.configure(new Jogger(), "scaling");
+		jogger.setMaxSizeBytes(64 * 1024 * 1024);
+		jogger.setMaxSegments(4);
+		switch (mode) {
+		case "LOCK":
+			jogger.setLock(true);
+			break;
+		case "ASYNC":
+			jogger.enableAsync();
+			break;
+		default:
+			jogger.enableStriped();
+			break;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void threads01() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public void threads02() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void threads04() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void threads08() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void threads16() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(32)
+	public void threads32() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void threads64() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+}
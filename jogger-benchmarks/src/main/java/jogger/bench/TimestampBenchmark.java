@@ -0,0 +1,61 @@
+package jogger.bench;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jogger.LogRecord;
+import jogger.TimestampFormat;
+
+/**
+ * This class compare the timestamps rendered with the formatter, as done by the loggers before,
+ * with the cached rendering of every format. Run it with the gc profiler to check that
+ * the cached rendering do not allocate (gc.alloc.rate.norm)
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class TimestampBenchmark {
+	private final StringBuilder out = new StringBuilder(64);
+
+	@Benchmark
+	public StringBuilder formatter() {
+		out.setLength(0);
+		return out.append(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+	}
+
+	@Benchmark
+	public StringBuilder cachedIso() {
+		out.setLength(0);
+		return TimestampFormat.ISO.appendTo(out, LogRecord.nowEpochNanos());
+	}
+
+	@Benchmark
+	public StringBuilder cachedCompact() {
+		out.setLength(0);
+		return TimestampFormat.COMPACT.appendTo(out, LogRecord.nowEpochNanos());
+	}
+
+	@Benchmark
+	public StringBuilder epochMillis() {
+		out.setLength(0);
+		return TimestampFormat.EPOCH_MILLIS.appendTo(out, LogRecord.nowEpochNanos());
+	}
+}
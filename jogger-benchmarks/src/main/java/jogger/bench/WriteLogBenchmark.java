@@ -0,0 +1,78 @@
+package jogger.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.LockLogException;
+import jogger.Jogger;
+import jogger.RecordFormat;
+import jogger.WriterMode;
+
+/**
+ * This class measure the throughput and the latency of Jogger.writeLog,
+ * with one thread and with more threads on the same logger.
+ * The sample time mode report the percentiles of latency of every call
+ * @author Andrea Serra
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteLogBenchmark {
+	@Param({"CHANNEL", "MAPPED"})
+	public WriterMode writerMode;
+
+	@Param({"TEXT", "BINARY"})
+	public RecordFormat recordFormat;
+
+	@Param({"false", "true"})
+	public boolean async;
+
+	private Jogger jogger;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jogger = BenchmarkLogs.configure(new Jogger(), "write");
+		jogger.setWriterMode(writerMode);
+		jogger.setRecordFormat(recordFormat);
+		jogger.setMaxSizeBytes(16 * 1024 * 1024);
+		/* the rotated segments are deleted, the trial never fill the disk */
+		jogger.setMaxSegments(4);
+		if (async) jogger.enableAsync();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkLogs.dispose(jogger);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void singleThread() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void fourThreads() throws LockLogException {
+		jogger.writeLog(BenchmarkLogs.LINE);
+	}
+}
@@ -0,0 +1,36 @@
+package jogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of the sinks that receive the lines of a log, in addition to the log file.
+ * Every appender is served by its own thread with a bounded queue, so a slow appender
+ * never delay the log file or the other appenders. The lines are encoded once in UTF-8,
+ * with the text layout of log file, and the same bytes are handed to every appender
+ * @author Andrea Serra
+ *
+ */
+public interface Appender extends AutoCloseable {
+
+	/**
+	 * method that append a batch of lines, every line end with a new line
+	 * @param bytes read only buffer with the lines in UTF-8, shared by the appenders and valid only during the call
+	 * @throws IOException
+	 */
+	void append(ByteBuffer bytes) throws IOException;
+
+	/**
+	 * method called after the batches available are appended
+	 * @throws IOException
+	 */
+	default void flush() throws IOException {
+	}
+
+	/**
+	 * method that release the resources of appender, called after the last batch
+	 * @throws IOException
+	 */
+	@Override
+	void close() throws IOException;
+}
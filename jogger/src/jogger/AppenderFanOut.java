@@ -0,0 +1,151 @@
+package jogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class hand the lines of a log to the appenders. The batch is encoded once in a byte array,
+ * then every appender receive a read only view of it on its own thread. The queue of an appender
+ * is bounded, when it is full the batch is dropped for that appender only
+ * @author Andrea Serra
+ *
+ */
+final class AppenderFanOut {
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+	private static final int MAX_KEPT_BUFFER_SIZE = 1 << 20;
+	private static final ThreadLocal<ByteBuffer> ENCODE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+	private final CopyOnWriteArrayList<Sink> sinks = new CopyOnWriteArrayList<Sink>();
+	private final LongAdder dropped = new LongAdder();
+
+	/* appender with its queue and thread */
+	private final class Sink {
+		private final Appender appender;
+		private final AsyncWriter writer;
+		/* the failures are reported once until the appender recover, used only by its thread */
+		private boolean failing = false;
+
+		private Sink(Appender appender, String name, int bufferSize) {
+			this.appender = appender;
+			this.writer = new AsyncWriter(name, bufferSize, WaitStrategy.PARK, this::appendBatch, dropped::add);
+			this.writer.setOverflowPolicy(OverflowPolicy.DROP_NEWEST, 0, 1);
+		}
+
+		/* method used by the thread of appender, a flush for every batch drained */
+		private void appendBatch(List<Object> batches) {
+			int appended = 0;
+			try {
+				for (Object bytes : batches) {
+					appender.append(ByteBuffer.wrap((byte[]) bytes).asReadOnlyBuffer());
+					appended++;
+				}
+				appender.flush();
+				failing = false;
+			} catch (IOException | RuntimeException e) {
+				/* the batches not appended are dropped, the appender can recover on next batch */
+				dropped.add(Math.max(1, batches.size() - appended));
+				if (!failing) JoggerStatus.error("Appender " + appender.getClass().getName() + " failed, its batches are dropped until it recover", e);
+				failing = true;
+			}
+		}
+
+		/* method that append the batches queued and close the appender */
+		private void close() {
+			writer.close();
+			try {
+				appender.close();
+			} catch (IOException | RuntimeException e) {
+				JoggerStatus.error("Unable to close the appender " + appender.getClass().getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * method that add an appender, with its own thread
+	 * @param appender to be added
+	 * @param name of appender thread
+	 * @param bufferSize max number of batches queued, rounded up to a power of two
+	 */
+	void add(Appender appender, String name, int bufferSize) {
+		sinks.add(new Sink(appender, name, bufferSize));
+	}
+
+	/**
+	 * method that remove an appender, after its batches queued are appended
+	 * @param appender to be removed
+	 * @return true if the appender was added, false otherwise
+	 */
+	boolean remove(Appender appender) {
+		for (Sink sink : sinks) {
+			if (sink.appender != appender || !sinks.remove(sink)) continue;
+			sink.close();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * method that check if there are no appenders
+	 * @return true if no appender is added
+	 */
+	boolean isEmpty() {
+		return sinks.isEmpty();
+	}
+
+	/**
+	 * method that get the batches dropped because an appender was behind or failed, counted for every appender
+	 * @return number of batches dropped
+	 */
+	long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * method that encode the entries and queue them for every appender
+	 * @param entries to be appended, lines or records
+	 */
+	void publish(List<?> entries) {
+		if (sinks.isEmpty()) return;
+		byte[] bytes = encode(entries);
+		for (Sink sink : sinks) sink.writer.publish(bytes);
+	}
+
+	/**
+	 * method that wait until the batches queued are appended
+	 */
+	void flush() {
+		for (Sink sink : sinks) sink.writer.flush();
+	}
+
+	/**
+	 * method that remove all the appenders, after their batches queued are appended
+	 */
+	void close() {
+		for (Sink sink : sinks) if (sinks.remove(sink)) sink.close();
+	}
+
+	/* method that encode the entries in UTF-8 lines, in a buffer reused by the thread */
+	private static byte[] encode(List<?> entries) {
+		int maxLength = 0;
+		CharSequence[] lines = new CharSequence[entries.size()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = SegmentWriter.toLine(entries.get(i));
+			maxLength += lines[i].length() * Utf8Encoder.MAX_BYTES_PER_CHAR + 1;
+		}
+
+		ByteBuffer out = ENCODE_BUFFER.get();
+		if (out.capacity() < maxLength || (out.capacity() > MAX_KEPT_BUFFER_SIZE && maxLength <= DEFAULT_BUFFER_SIZE)) {
+			out = ByteBuffer.allocate(Math.max(maxLength, DEFAULT_BUFFER_SIZE));
+			ENCODE_BUFFER.set(out);
+		}
+		out.clear();
+		for (CharSequence line : lines) {
+			Utf8Encoder.encode(line, out);
+			out.put((byte) '\n');
+		}
+		return Arrays.copyOf(out.array(), out.position());
+	}
+}
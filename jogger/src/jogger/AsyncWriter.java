@@ -0,0 +1,137 @@
+package jogger;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * This class implements the dedicated thread that drain the ring buffer on the log file
+ * @author Andrea Serra
+ *
+ */
+final class AsyncWriter implements BufferedEntryWriter, Runnable {
+	private static final int MAX_BATCH = 256;
+	private final RingBuffer ringBuffer;
+	private final WaitStrategy waitStrategy;
+	private final BatchHandler handler;
+	private final ArrayList<Object> batch = new ArrayList<Object>(MAX_BATCH);
+	private final Thread thread;
+	private final LongConsumer dropped;
+	private final AtomicLong overflowed = new AtomicLong();
+	private volatile long written = -1;
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private volatile long overflowTimeoutNanos = Long.MAX_VALUE;
+	private volatile int overflowSampleRate = 1;
+
+	/**
+	 * constructor that set the ring buffer and start the writer thread
+	 * @param name of writer thread
+	 * @param bufferSize of ring buffer
+	 * @param waitStrategy used while waiting
+	 * @param handler that write the lines
+	 * @param dropped counter of the entries dropped
+	 */
+	AsyncWriter(String name, int bufferSize, WaitStrategy waitStrategy, BatchHandler handler, LongConsumer dropped) {
+		this.ringBuffer = new RingBuffer(bufferSize, waitStrategy);
+		this.waitStrategy = waitStrategy;
+		this.handler = handler;
+		this.dropped = dropped;
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy, long timeoutMillis, int sampleRate) {
+		this.overflowPolicy = overflowPolicy;
+		this.overflowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.overflowSampleRate = Math.max(1, sampleRate);
+	}
+
+	@Override
+	public boolean publish(Object entry) {
+		entry = Objects.requireNonNullElse(entry, "null");
+		if (ringBuffer.tryPublish(entry)) return true;
+		if (ringBuffer.isClosed()) return false;
+
+		switch (overflowPolicy) {
+		case DROP_NEWEST:
+			dropped.accept(1);
+			return true;
+		case DROP_OLDEST:
+			/* the entries overwritten are counted by the writer thread */
+			return ringBuffer.publishOverwrite(entry);
+		case SAMPLE:
+			if (overflowed.getAndIncrement() % overflowSampleRate != 0) {
+				dropped.accept(1);
+				return true;
+			}
+			return publishWaiting(entry);
+		default:
+			return publishWaiting(entry);
+		}
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return Math.max(0, Math.min(ringBuffer.getClaimed() - ringBuffer.getConsumed(), ringBuffer.getCapacity()));
+	}
+
+	@Override
+	public void flush() {
+		long target = ringBuffer.getClaimed();
+		while (written < target && thread.isAlive()) WaitStrategy.PARK.idle();
+	}
+
+	@Override
+	public void close() {
+		ringBuffer.close();
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			int count = ringBuffer.drain(batch, MAX_BATCH);
+			long overwritten = ringBuffer.takeOverwritten();
+			if (overwritten > 0) dropped.accept(overwritten);
+			if (count > 0) {
+				try {
+					handler.writeBatch(batch);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+				batch.clear();
+				written = ringBuffer.getConsumed();
+			} else if (ringBuffer.isClosed() && ringBuffer.isEmpty()) {
+				/* no sequence is claimed after the close, all the claimed ones are drained */
+				break;
+			}
+			else waitStrategy.idle();
+		}
+	}
+
+	/* method that wait for a free slot up to the timeout, the parking of wait strategy is safe for the virtual threads */
+	private boolean publishWaiting(Object entry) {
+		long start = System.nanoTime();
+		while (true) {
+			waitStrategy.idle();
+			if (ringBuffer.tryPublish(entry)) return true;
+			if (ringBuffer.isClosed()) return false;
+			if (System.nanoTime() - start >= overflowTimeoutNanos) {
+				dropped.accept(1);
+				return true;
+			}
+		}
+	}
+}
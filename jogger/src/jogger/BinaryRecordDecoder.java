@@ -0,0 +1,315 @@
+package jogger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * This class decode the binary segments record by record.
+ * It can be used from command line to render the segments with the text layout:
+ * java jogger.BinaryRecordDecoder segment...
+ * @author Andrea Serra
+ *
+ */
+public class BinaryRecordDecoder implements Closeable {
+	private final DataInputStream in;
+	private final HashMap<Integer, String> dictionary = new HashMap<Integer, String>();
+	private byte[] record = new byte[256];
+	private long position = 0;
+	private long recordOffset = 0;
+	private boolean ended = false;
+
+	/**
+	 * constructor that read the header of segment
+	 * @param in stream of a binary segment, decompressed
+	 * @throws IOException if the stream is not a binary segment
+	 */
+	public BinaryRecordDecoder(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+		byte[] magic = new byte[BinarySegmentWriter.MAGIC.length];
+		try {
+			this.in.readFully(magic);
+		} catch (EOFException e) {
+			/* segment just created, or header truncated by a crash */
+			ended = true;
+			return;
+		}
+		for (int i = 0; i < magic.length; i++) if (magic[i] != BinarySegmentWriter.MAGIC[i]) throw new IOException("Not a binary log segment");
+		int version = this.in.read();
+		if (version < 0) {
+			ended = true;
+			return;
+		}
+		if (version != BinarySegmentWriter.VERSION) throw new IOException("Unsupported binary log version " + version);
+		position = BinarySegmentWriter.HEADER_LENGTH;
+	}
+
+	/* constructor of a decoder of records read by the caller */
+	private BinaryRecordDecoder() {
+		this.in = null;
+	}
+
+	/* ################################################################################# */
+	/* START STATIC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that check if a segment is binary, by its name
+	 * @param segment file
+	 * @return true if the segment is binary, false otherwise
+	 */
+	public static boolean isBinarySegment(File segment) {
+		String name = segment.getName();
+		String suffix = Compression.fromFileName(name).getSuffix();
+		return name.substring(0, name.length() - suffix.length()).endsWith(RecordFormat.BINARY_SUFFIX);
+	}
+
+	/**
+	 * method that render a segment with the text layout, decompressed and decoded if needed
+	 * @param segment to be rendered
+	 * @param out where the text is written
+	 * @throws IOException
+	 */
+	public static void renderText(File segment, Writer out) throws IOException {
+		if (!isBinarySegment(segment)) {
+			try (InputStream in = JoggerReader.openInputStream(segment)) {
+				out.write(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+			return;
+		}
+
+		try (BinaryRecordDecoder decoder = new BinaryRecordDecoder(JoggerReader.openInputStream(segment))) {
+			LogRecord logRecord;
+			while ((logRecord = decoder.readRecord()) != null) out.append(logRecord.toText()).append('\n');
+		}
+	}
+
+	/**
+	 * method that create a decoder of the records read by the caller, without header
+	 * @return decoder with empty dictionary
+	 */
+	static BinaryRecordDecoder forRecords() {
+		return new BinaryRecordDecoder();
+	}
+
+	/**
+	 * method that render a segment with the text layout in UTF-8 bytes
+	 * @param segment to be rendered
+	 * @return UTF-8 text of segment
+	 * @throws IOException
+	 */
+	static byte[] renderTextBytes(File segment) throws IOException {
+		StringBuilderWriter out = new StringBuilderWriter();
+		renderText(segment, out);
+		return out.builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * command line that render the segments on standard output
+	 * @param args paths of segments
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: java jogger.BinaryRecordDecoder segment...");
+			System.exit(1);
+		}
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		for (String path : args) renderText(new File(path), out);
+		out.flush();
+	}
+
+	/* ################################################################################# */
+	/* END STATIC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that read the next event record, the dictionary records are consumed
+	 * @return the record, null at the end of segment or at a truncated record
+	 * @throws IOException if the segment is corrupted
+	 */
+	public LogRecord readRecord() throws IOException {
+		while (!ended) {
+			recordOffset = position;
+			int length = readRecordBytes();
+			if (length < 0) return null;
+
+			LogRecord logRecord = decode(ByteBuffer.wrap(record, 0, length));
+			if (logRecord != null) return logRecord;
+		}
+		return null;
+	}
+
+	/**
+	 * method that decode a record without its length, the dictionary records are consumed
+	 * @param buffer with the record
+	 * @return the event, or null for a dictionary record
+	 * @throws IOException if the record is corrupted
+	 */
+	LogRecord decode(ByteBuffer buffer) throws IOException {
+		byte kind = buffer.get();
+		if (kind == BinarySegmentWriter.KIND_DICTIONARY) dictionary.put(buffer.getInt(), getString(buffer));
+		else if (kind == BinarySegmentWriter.KIND_EVENT) return getEvent(buffer);
+		else throw new IOException("Unknown record kind " + kind);
+		return null;
+	}
+
+	/**
+	 * method that skip the events up to an offset of segment, the dictionary records are consumed
+	 * @param offset where the next record starts
+	 * @throws IOException
+	 */
+	void skipTo(long offset) throws IOException {
+		while (!ended && position < offset) {
+			int length;
+			byte kind;
+			try {
+				length = in.readInt();
+				if (length <= 0) {
+					ended = true;
+					return;
+				}
+				kind = in.readByte();
+			} catch (EOFException e) {
+				ended = true;
+				return;
+			}
+			position += 5;
+
+			/* only the dictionary is decoded */
+			if (kind == BinarySegmentWriter.KIND_DICTIONARY) {
+				if (record.length < length) record = new byte[Math.max(length, record.length << 1)];
+				try {
+					in.readFully(record, 0, length - 1);
+				} catch (EOFException e) {
+					ended = true;
+					return;
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(record, 0, length - 1);
+				dictionary.put(buffer.getInt(), getString(buffer));
+			} else if (JoggerReader.skipFully(in, length - 1) < length - 1) ended = true;
+			position += length - 1;
+		}
+	}
+
+	/**
+	 * method that get the offset of the last record read
+	 * @return offset in the segment
+	 */
+	long getRecordOffset() {
+		return recordOffset;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (in != null) in.close();
+	}
+
+	/* method that read the bytes of next record, -1 at the end of segment or at a truncated record */
+	private int readRecordBytes() throws IOException {
+		try {
+			int length = in.readInt();
+			if (length <= 0) {
+				ended = true;
+				return -1;
+			}
+			if (record.length < length) record = new byte[Math.max(length, record.length << 1)];
+			in.readFully(record, 0, length);
+			position += 4 + length;
+			return length;
+		} catch (EOFException e) {
+			/* truncated by a crash */
+			ended = true;
+			return -1;
+		}
+	}
+
+	/* method that decode an event */
+	private LogRecord getEvent(ByteBuffer buffer) throws IOException {
+		long epochNanos = buffer.getLong();
+		byte level = buffer.get();
+		long threadId = buffer.getLong();
+		String template = lookup(buffer.getInt());
+
+		Object[] args = new Object[buffer.get()];
+		for (int i = 0; i < args.length; i++) args[i] = getArg(buffer);
+
+		short frameCount = buffer.getShort();
+		String[] frames = null;
+		if (frameCount >= 0) {
+			frames = new String[frameCount];
+			for (int i = 0; i < frameCount; i++) frames[i] = lookup(buffer.getInt());
+		}
+		return new LogRecord(epochNanos, level, threadId, template, args, frames, getString(buffer));
+	}
+
+	/* method that decode a typed argument */
+	private static Object getArg(ByteBuffer buffer) throws IOException {
+		byte type = buffer.get();
+		switch (type) {
+		case BinarySegmentWriter.ARG_NULL:
+			return null;
+		case BinarySegmentWriter.ARG_STRING:
+			return getString(buffer);
+		case BinarySegmentWriter.ARG_INT:
+			return buffer.getInt();
+		case BinarySegmentWriter.ARG_LONG:
+			return buffer.getLong();
+		case BinarySegmentWriter.ARG_DOUBLE:
+			return buffer.getDouble();
+		case BinarySegmentWriter.ARG_BOOLEAN:
+			return buffer.get() != 0;
+		default:
+			throw new IOException("Unknown argument type " + type);
+		}
+	}
+
+	/* method that decode a string */
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) return null;
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	/* method that get a string of dictionary */
+	private String lookup(int id) throws IOException {
+		String value = dictionary.get(id);
+		if (value == null) throw new IOException("Unknown dictionary id " + id);
+		return value;
+	}
+
+	/* writer on a string builder, without the synchronization of StringWriter */
+	private static final class StringBuilderWriter extends Writer {
+		private final StringBuilder builder = new StringBuilder();
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			builder.append(cbuf, off, len);
+		}
+
+		@Override
+		public Writer append(CharSequence csq) {
+			builder.append(csq);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package jogger;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+
+import exception.LogFileException;
+
+/**
+ * This class write the segments as length prefixed binary records.
+ * Templates and stack frames are written once per segment in a dictionary
+ * and the events refer to them by id, so every segment can be decoded alone
+ * @author Andrea Serra
+ *
+ */
+class BinarySegmentWriter extends SegmentWriter {
+	/* format of segments */
+	static final byte[] MAGIC = {'J', 'O', 'G', 'B'};
+	static final byte VERSION = 1;
+	static final int HEADER_LENGTH = MAGIC.length + 1;
+	static final byte KIND_DICTIONARY = 1;
+	static final byte KIND_EVENT = 2;
+	static final byte ARG_NULL = 0;
+	static final byte ARG_STRING = 1;
+	static final byte ARG_INT = 2;
+	static final byte ARG_LONG = 3;
+	static final byte ARG_DOUBLE = 4;
+	static final byte ARG_BOOLEAN = 5;
+	private static final int EVENT_FIXED_SIZE = 64;
+
+	private final HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+	private boolean ownSegment = false;
+	private ByteBuffer out;
+
+	/**
+	 * constructor that set the directory and the name of the segments
+	 * @param logDir where the segments are located
+	 * @param fileNameLog prefix and name of log, like "log_jogger-"
+	 * @param fileType extension of segments, with the binary suffix
+	 * @param maxSizeBytes of segments
+	 */
+	BinarySegmentWriter(File logDir, String fileNameLog, String fileType, int maxSizeBytes) {
+		super(logDir, fileNameLog, fileType, maxSizeBytes);
+	}
+
+	/* ################################################################################# */
+	/* START PROTECTED METHODS */
+	/* ################################################################################# */
+
+	@Override
+	protected boolean needsRotation(int length) {
+		/* a segment written before has an unknown dictionary, it is never continued */
+		return super.needsRotation(length) || (activeSize > 0 && !ownSegment);
+	}
+
+	@Override
+	protected void openSegment(File file) throws LogFileException {
+		super.openSegment(file);
+		dictionary.clear();
+		ownSegment = activeSize == 0;
+
+		/* write the header of new segment */
+		if (ownSegment) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.put(MAGIC).put(VERSION).flip();
+			writeBytes(header);
+		}
+	}
+
+	@Override
+	protected void writeBytes(ByteBuffer bytes) throws LogFileException {
+		try {
+			super.writeBytes(bytes);
+		} catch (LogFileException e) {
+			/* the dictionary could be incomplete on the segment, continue on a new one */
+			dictionary.clear();
+			ownSegment = false;
+			throw e;
+		}
+	}
+
+	@Override
+	protected ByteBuffer encode(List<?> entries) {
+		out = clearBuffer(entries.size() * EVENT_FIXED_SIZE);
+		for (Object entry : entries) {
+			LogRecord record = entry instanceof LogRecord ? (LogRecord) entry : LogRecord.plain(String.valueOf(entry));
+			encodeRecord(record);
+		}
+		out.flip();
+		ByteBuffer encoded = out;
+		out = null;
+		return encoded;
+	}
+
+	/* ################################################################################# */
+	/* END PROTECTED METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that encode a record, preceded by the dictionary entries it needs */
+	private void encodeRecord(LogRecord record) {
+		int templateId = define(record.getTemplate());
+		String[] frames = record.getFrames();
+		int[] frameIds = null;
+		if (frames != null) {
+			frameIds = new int[frames.length];
+			for (int i = 0; i < frames.length; i++) frameIds[i] = define(frames[i]);
+		}
+
+		ensure(EVENT_FIXED_SIZE);
+		int start = startRecord(KIND_EVENT);
+		out.putLong(record.getEpochNanos());
+		out.put(record.getLevel());
+		out.putLong(record.getThreadId());
+		out.putInt(templateId);
+
+		Object[] args = record.getArgs();
+		out.put((byte) args.length);
+		for (Object arg : args) putArg(arg);
+
+		ensure(2 + (frameIds == null ? 0 : frameIds.length * 4));
+		out.putShort((short) (frameIds == null ? -1 : frameIds.length));
+		if (frameIds != null) for (int id : frameIds) out.putInt(id);
+		putString(record.getDetail());
+		endRecord(start);
+	}
+
+	/* method that get the id of a string, writing it in the dictionary if new */
+	private int define(String value) {
+		if (value == null) value = "null";
+		Integer id = dictionary.get(value);
+		if (id != null) return id;
+
+		id = dictionary.size();
+		dictionary.put(value, id);
+		ensure(9);
+		int start = startRecord(KIND_DICTIONARY);
+		out.putInt(id);
+		putString(value);
+		endRecord(start);
+		return id;
+	}
+
+	/* method that write a typed argument */
+	private void putArg(Object arg) {
+		ensure(9);
+		if (arg == null) out.put(ARG_NULL);
+		else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) out.put(ARG_INT).putInt(((Number) arg).intValue());
+		else if (arg instanceof Long) out.put(ARG_LONG).putLong((Long) arg);
+		else if (arg instanceof Double || arg instanceof Float) out.put(ARG_DOUBLE).putDouble(((Number) arg).doubleValue());
+		else if (arg instanceof Boolean) out.put(ARG_BOOLEAN).put((byte) ((Boolean) arg ? 1 : 0));
+		else {
+			out.put(ARG_STRING);
+			putString(String.valueOf(arg));
+		}
+	}
+
+	/* method that write a string as UTF-8 bytes preceded by their length, -1 if null */
+	private void putString(String value) {
+		if (value == null) {
+			ensure(4);
+			out.putInt(-1);
+			return;
+		}
+		ensure(4 + value.length() * Utf8Encoder.MAX_BYTES_PER_CHAR);
+		int lengthPos = out.position();
+		out.putInt(0);
+		Utf8Encoder.encode(value, out);
+		out.putInt(lengthPos, out.position() - lengthPos - 4);
+	}
+
+	/* method that start a record, reserving its length */
+	private int startRecord(byte kind) {
+		int start = out.position();
+		out.putInt(0);
+		out.put(kind);
+		return start;
+	}
+
+	/* method that write the length of record */
+	private void endRecord(int start) {
+		out.putInt(start, out.position() - start - 4);
+	}
+
+	/* method that grow the buffer if needed */
+	private void ensure(int length) {
+		out = ensureRemaining(length);
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+}
@@ -0,0 +1,50 @@
+package jogger;
+
+import java.util.List;
+
+/**
+ * Interface of the writers that buffer the entries of producers
+ * and write them on the log file with their own thread
+ * @author Andrea Serra
+ *
+ */
+interface BufferedEntryWriter {
+
+	/**
+	 * handler that write a batch of entries on the log file
+	 */
+	interface BatchHandler {
+		void writeBatch(List<Object> entries);
+	}
+
+	/**
+	 * method that buffer an entry, applying the overflow policy if the buffer is full
+	 * @param entry to be written, a line or a record
+	 * @return true if buffered or dropped by the policy, false if the writer is closed
+	 */
+	boolean publish(Object entry);
+
+	/**
+	 * method that set the policy applied when the buffer is full
+	 * @param overflowPolicy policy applied
+	 * @param timeoutMillis max wait for a free slot
+	 * @param sampleRate one entry kept every sampleRate with the sample policy
+	 */
+	void setOverflowPolicy(OverflowPolicy overflowPolicy, long timeoutMillis, int sampleRate);
+
+	/**
+	 * method that get the entries buffered and not yet written
+	 * @return number of entries buffered
+	 */
+	long getQueueDepth();
+
+	/**
+	 * method that wait until all the entries buffered before the call are written
+	 */
+	void flush();
+
+	/**
+	 * method that stop accepting entries, write the buffered ones and stop the writer thread
+	 */
+	void close();
+}
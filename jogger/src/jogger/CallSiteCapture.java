@@ -0,0 +1,92 @@
+package jogger;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * This class capture the stack of the caller with a StackWalker, decoding only the frames
+ * needed and reusing the strings already rendered for the same frames
+ * @author Andrea Serra
+ *
+ */
+final class CallSiteCapture {
+	private static final int MAX_CACHED_FRAMES = 4096;
+	private static final StackWalker WALKER = StackWalker.getInstance();
+	private static final ConcurrentHashMap<FrameKey, String> RENDERED_FRAMES = new ConcurrentHashMap<FrameKey, String>();
+	private static final String JOGGER_PACKAGE = "jogger.";
+
+	private CallSiteCapture() {
+	}
+
+	/* key of a frame rendered */
+	private static final class FrameKey {
+		private final String className;
+		private final String methodName;
+		private final int bci;
+
+		private FrameKey(StackFrame frame) {
+			this.className = frame.getClassName();
+			this.methodName = frame.getMethodName();
+			this.bci = frame.getByteCodeIndex();
+		}
+
+		@Override
+		public int hashCode() {
+			return (className.hashCode() * 31 + methodName.hashCode()) * 31 + bci;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FrameKey)) return false;
+			FrameKey other = (FrameKey) obj;
+			return bci == other.bci && Objects.equals(className, other.className) && Objects.equals(methodName, other.methodName);
+		}
+	}
+
+	/**
+	 * method that append the stack of the caller, skipping the frames of the loggers
+	 * @param out where the frames are appended
+	 * @param maxDepth max number of frames appended
+	 * @return the builder
+	 */
+	static StringBuilder appendCallerStack(StringBuilder out, int maxDepth) {
+		WALKER.walk(frames -> {
+			appendFrames(frames.dropWhile(CallSiteCapture::isLoggerFrame).limit(maxDepth), out);
+			return null;
+		});
+		return out;
+	}
+
+	/**
+	 * method that capture the stack of the caller, skipping the frames of the loggers
+	 * @param maxDepth max number of frames captured
+	 * @return frames rendered
+	 */
+	static String[] captureCallerFrames(int maxDepth) {
+		return WALKER.walk(frames -> frames.dropWhile(CallSiteCapture::isLoggerFrame).limit(maxDepth).map(CallSiteCapture::render).toArray(String[]::new));
+	}
+
+	/* method that append the frames rendered */
+	private static void appendFrames(Stream<StackFrame> frames, StringBuilder out) {
+		frames.forEach(frame -> out.append("\n\t").append(render(frame)));
+	}
+
+	/* method that render a frame, reusing the cached string */
+	private static String render(StackFrame frame) {
+		FrameKey key = new FrameKey(frame);
+		String rendered = RENDERED_FRAMES.get(key);
+		if (rendered != null) return rendered;
+
+		rendered = frame.toStackTraceElement().toString();
+		if (RENDERED_FRAMES.size() < MAX_CACHED_FRAMES) RENDERED_FRAMES.putIfAbsent(key, rendered);
+		return rendered;
+	}
+
+	/* method that check if a frame is a frame of the loggers */
+	private static boolean isLoggerFrame(StackFrame frame) {
+		String className = frame.getClassName();
+		return className.startsWith(JOGGER_PACKAGE) && className.indexOf('.', JOGGER_PACKAGE.length()) < 0;
+	}
+}
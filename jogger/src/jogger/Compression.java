@@ -0,0 +1,40 @@
+package jogger;
+
+/**
+ * Codecs used to compress the rotated segments
+ * @author Andrea Serra
+ *
+ */
+public enum Compression {
+	/** the rotated segments are left uncompressed */
+	NONE(""),
+	/** the rotated segments are compressed with gzip */
+	GZIP(".gz"),
+	/** the rotated segments are compressed with LZF, faster than gzip with a lower ratio */
+	LZF(".lzf");
+
+	private final String suffix;
+
+	private Compression(String suffix) {
+		this.suffix = suffix;
+	}
+
+	/**
+	 * method that get the suffix appended to the name of compressed segments
+	 * @return suffix of file name
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+
+	/**
+	 * method that get the compression of a segment from its name
+	 * @param fileName of segment
+	 * @return compression of segment
+	 */
+	public static Compression fromFileName(String fileName) {
+		if (fileName.endsWith(GZIP.suffix)) return GZIP;
+		if (fileName.endsWith(LZF.suffix)) return LZF;
+		return NONE;
+	}
+}
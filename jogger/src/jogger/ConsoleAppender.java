@@ -0,0 +1,51 @@
+package jogger;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This class print the lines on the standard output or on the standard error.
+ * The stream is read for every batch, because it can be replaced
+ * @author Andrea Serra
+ *
+ */
+public class ConsoleAppender implements Appender {
+	private static final int CHUNK_SIZE = 8192;
+	private final boolean error;
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+
+	/**
+	 * constructor that print on the standard output
+	 */
+	public ConsoleAppender() {
+		this(false);
+	}
+
+	/**
+	 * constructor that set the stream
+	 * @param error true for the standard error, false for the standard output
+	 */
+	public ConsoleAppender(boolean error) {
+		this.error = error;
+	}
+
+	@Override
+	public synchronized void append(ByteBuffer bytes) {
+		PrintStream stream = error ? System.err : System.out;
+		while (bytes.hasRemaining()) {
+			int length = Math.min(bytes.remaining(), CHUNK_SIZE);
+			bytes.get(chunk, 0, length);
+			stream.write(chunk, 0, length);
+		}
+	}
+
+	@Override
+	public void flush() {
+		(error ? System.err : System.out).flush();
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+}
@@ -0,0 +1,113 @@
+package jogger;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class print the console output of a logger on its own thread, decoupled from the log file.
+ * The lines are queued in a bounded ring buffer and printed in batches, with a flush for every batch,
+ * so a slow terminal or a full pipe delay only this thread. When the buffer is full the overflow policy
+ * drop the lines or block the producer up to the timeout
+ * @author Andrea Serra
+ *
+ */
+final class ConsoleWriter {
+	private static final int MAX_KEPT_BUFFER_SIZE = 1 << 16;
+	private final AsyncWriter writer;
+	private final LongAdder dropped = new LongAdder();
+	private StringBuilder out = new StringBuilder();
+
+	/* line printed on the standard error */
+	private static final class ErrorLine {
+		private final String text;
+
+		private ErrorLine(String text) {
+			this.text = text;
+		}
+	}
+
+	/**
+	 * constructor that start the console thread
+	 * @param name of console thread
+	 * @param bufferSize max number of lines queued, rounded up to a power of two
+	 * @param overflowPolicy applied when the buffer is full
+	 * @param timeoutMillis max wait for a free slot, with the block policy
+	 */
+	ConsoleWriter(String name, int bufferSize, OverflowPolicy overflowPolicy, long timeoutMillis) {
+		this.writer = new AsyncWriter(name, bufferSize, WaitStrategy.PARK, this::printBatch, dropped::add);
+		this.writer.setOverflowPolicy(overflowPolicy, timeoutMillis, 1);
+	}
+
+	/**
+	 * method that queue a line, printed directly if the writer is closed
+	 * @param line to be printed
+	 * @param error true for the standard error, false for the standard output
+	 */
+	void print(String line, boolean error) {
+		if (!writer.publish(error ? new ErrorLine(line) : line)) printNow(line, error);
+	}
+
+	/**
+	 * method that get the lines dropped by the overflow policy
+	 * @return number of lines dropped
+	 */
+	long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * method that get the lines queued and not yet printed
+	 * @return number of lines queued
+	 */
+	long getQueueDepth() {
+		return writer.getQueueDepth();
+	}
+
+	/**
+	 * method that wait until all the lines queued are printed
+	 */
+	void flush() {
+		writer.flush();
+	}
+
+	/**
+	 * method that print the lines queued and stop the console thread
+	 */
+	void close() {
+		writer.close();
+	}
+
+	/**
+	 * method that print a line on the caller thread
+	 * @param line to be printed
+	 * @param error true for the standard error, false for the standard output
+	 */
+	static void printNow(String line, boolean error) {
+		(error ? System.err : System.out).println(line);
+	}
+
+	/* method used by the console thread to print a batch, a write for every run of lines of the same stream */
+	private void printBatch(List<Object> lines) {
+		boolean error = false;
+		for (Object line : lines) {
+			boolean lineError = line instanceof ErrorLine;
+			if (lineError != error) {
+				printBuffer(error);
+				error = lineError;
+			}
+			out.append(lineError ? ((ErrorLine) line).text : line).append(System.lineSeparator());
+		}
+		printBuffer(error);
+	}
+
+	/* method that print the lines buffered on a stream, the stream is read every time because it can be replaced */
+	private void printBuffer(boolean error) {
+		if (out.length() == 0) return;
+		PrintStream stream = error ? System.err : System.out;
+		stream.append(out);
+		stream.flush();
+		if (out.capacity() > MAX_KEPT_BUFFER_SIZE) out = new StringBuilder();
+		else out.setLength(0);
+	}
+}
@@ -0,0 +1,186 @@
+package jogger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class limit the debug entries of every template, or of every call site for the suppliers,
+ * with a token bucket and a probabilistic sampling.
+ * The templates without their own limit get a copy of the default one, up to MAX_DEFAULT_LIMITS templates:
+ * the idle copies are evicted and the templates over the max share the default limit, reported without a template.
+ * The admission is lock-free and allocate only for the first entry of a template, the entries suppressed are counted for the reports
+ * @author Andrea Serra
+ *
+ */
+final class DebugRateLimiter {
+	private static final int MAX_DEFAULT_LIMITS = 1024;
+	private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+	private final ConcurrentHashMap<Object, Limit> rules = new ConcurrentHashMap<Object, Limit>();
+	private final ConcurrentHashMap<Object, Limit> defaultLimits = new ConcurrentHashMap<Object, Limit>();
+	private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+	private final SuppressedHandler handler;
+	private volatile Limit defaultLimit = null;
+	private volatile boolean active = false;
+
+	/**
+	 * handler that report the entries suppressed of a template, the key is null for the templates over the max
+	 */
+	interface SuppressedHandler {
+		void reportSuppressed(Object key, long suppressed);
+	}
+
+	/* limit of a template, the token bucket is implemented as the theoretical arrival time of GCRA */
+	private static final class Limit {
+		private final long intervalNanos;
+		private final long toleranceNanos;
+		private final double sampleRate;
+		private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+		private final LongAdder suppressed = new LongAdder();
+
+		private Limit(double entriesPerSecond, int burst, double sampleRate) {
+			this.intervalNanos = entriesPerSecond > 0 ? Math.max(1, (long) (1_000_000_000L / entriesPerSecond)) : 0;
+			this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+			this.sampleRate = sampleRate;
+		}
+
+		private Limit(Limit limit) {
+			this.intervalNanos = limit.intervalNanos;
+			this.toleranceNanos = limit.toleranceNanos;
+			this.sampleRate = limit.sampleRate;
+		}
+
+		/* method that check if the limit has no state, a new copy would admit the same entries */
+		private boolean isIdle(long now) {
+			return arrival.get() - now <= 0 && suppressed.sum() == 0;
+		}
+
+		/* method that check if an entry is admitted */
+		private boolean admit(Object key) {
+			if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return suppress(key);
+			if (intervalNanos == 0) return true;
+
+			long now = System.nanoTime();
+			while (true) {
+				long current = arrival.get();
+				long base = current - now > 0 ? current : now;
+				if (base - now > toleranceNanos) return suppress(key);
+				if (arrival.compareAndSet(current, base + intervalNanos)) return true;
+			}
+		}
+
+		/* method that count a suppressed entry */
+		private boolean suppress(Object key) {
+			suppressed.increment();
+			return false;
+		}
+	}
+
+	/**
+	 * constructor that set the handler of reports
+	 * @param handler that report the entries suppressed
+	 */
+	DebugRateLimiter(SuppressedHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * method that check if an entry is admitted
+	 * @param key template or class of supplier
+	 * @return true if the entry must be written, false if it is suppressed
+	 */
+	boolean admit(Object key) {
+		if (!active || key == null) return true;
+		Limit limit = rules.isEmpty() ? null : rules.get(key);
+		if (limit == null) {
+			Limit shared = defaultLimit;
+			if (shared == null) return true;
+			limit = defaultLimits.get(key);
+			if (limit == null) limit = addDefaultLimit(key, shared);
+		}
+		return limit.admit(key);
+	}
+
+	/**
+	 * method that set the default limit, shared by the templates without their own limit
+	 * @param entriesPerSecond max rate of every template, 0 for no rate limit
+	 * @param burst max entries written at once
+	 * @param sampleRate probability that an entry is written, 1 for all
+	 */
+	synchronized void setDefaultLimit(double entriesPerSecond, int burst, double sampleRate) {
+		report();
+		defaultLimit = entriesPerSecond <= 0 && sampleRate >= 1 ? null : new Limit(entriesPerSecond, burst, sampleRate);
+		defaultLimits.clear();
+		active = defaultLimit != null || !rules.isEmpty();
+	}
+
+	/**
+	 * method that set the limit of a template
+	 * @param template of entries
+	 * @param entriesPerSecond max rate of template, 0 for no rate limit
+	 * @param burst max entries written at once
+	 * @param sampleRate probability that an entry is written, 1 for all
+	 */
+	synchronized void setLimit(String template, double entriesPerSecond, int burst, double sampleRate) {
+		Limit previous = rules.put(template, new Limit(entriesPerSecond, burst, sampleRate));
+		if (previous != null) report(template, previous);
+		active = true;
+	}
+
+	/**
+	 * method that remove the limit of a template, it will use the default one
+	 * @param template of entries
+	 */
+	synchronized void removeLimit(String template) {
+		Limit previous = rules.remove(template);
+		if (previous != null) report(template, previous);
+		active = defaultLimit != null || !rules.isEmpty();
+	}
+
+	/**
+	 * method that check if a limit is set
+	 * @return true if some entries can be suppressed
+	 */
+	boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * method that report the entries suppressed after the previous report
+	 */
+	void report() {
+		for (Map.Entry<Object, Limit> rule : rules.entrySet()) report(rule.getKey(), rule.getValue());
+		for (Map.Entry<Object, Limit> limit : defaultLimits.entrySet()) report(limit.getKey(), limit.getValue());
+		Limit shared = defaultLimit;
+		if (shared != null) report(null, shared);
+	}
+
+	/* method that create the copy of default limit of a template, the templates over the max share the default limit */
+	private Limit addDefaultLimit(Object key, Limit shared) {
+		if (defaultLimits.size() >= MAX_DEFAULT_LIMITS && !evictIdle()) return shared;
+		Limit limit = new Limit(shared);
+		Limit previous = defaultLimits.putIfAbsent(key, limit);
+		return previous != null ? previous : limit;
+	}
+
+	/* method that evict the idle limits, at most once every sweep interval */
+	private boolean evictIdle() {
+		long now = System.nanoTime();
+		long next = nextSweep.get();
+		if (now - next < 0 || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) return false;
+
+		for (Map.Entry<Object, Limit> limit : defaultLimits.entrySet()) {
+			/* the entries suppressed while it is removed are still reported */
+			if (limit.getValue().isIdle(now) && defaultLimits.remove(limit.getKey(), limit.getValue())) report(limit.getKey(), limit.getValue());
+		}
+		return defaultLimits.size() < MAX_DEFAULT_LIMITS;
+	}
+
+	/* method that report the entries suppressed by a limit */
+	private void report(Object key, Limit limit) {
+		long suppressed = limit.suppressed.sumThenReset();
+		if (suppressed > 0) handler.reportSuppressed(key, suppressed);
+	}
+}
@@ -0,0 +1,15 @@
+package jogger;
+
+/**
+ * Durability policies of the log files
+ * @author Andrea Serra
+ *
+ */
+public enum Durability {
+	/** lines are left in the OS buffers, no fsync is done */
+	NONE,
+	/** the log file is synced every fsync interval, if something has been written */
+	PERIODIC,
+	/** the log file is synced after every batch of lines, before the writers return */
+	BATCH
+}
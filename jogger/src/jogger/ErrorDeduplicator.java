@@ -0,0 +1,198 @@
+package jogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keep a window of time for every fingerprint of exception.
+ * The first exception of a window is written with its trace, the repeats inside the window are only counted
+ * and written as a summary when the window is over or when the next window start.
+ * If the trace is not written the window is over, so the summaries never refer to a missing trace,
+ * except the summaries of the windows evicted when there are too many fingerprints
+ * @author Andrea Serra
+ *
+ */
+final class ErrorDeduplicator {
+	/* the windows over are removed when there are too many fingerprints,
+	 * then the oldest ones until the map is back to the evicted size */
+	private static final int MAX_FINGERPRINTS = 4096;
+	private static final int EVICTED_SIZE = MAX_FINGERPRINTS * 3 / 4;
+	private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+	private final SummaryHandler handler;
+	private volatile long windowMillis;
+
+	/**
+	 * handler that write the summary of the repeats of an exception
+	 */
+	interface SummaryHandler {
+		void writeSummary(String fingerprint, String type, long repeats, long sinceMillis);
+	}
+
+	/* states of the trace of a window */
+	private static final int TRACE_PENDING = 0;
+	private static final int TRACE_WRITTEN = 1;
+	private static final int TRACE_FAILED = 2;
+
+	/* window of a fingerprint, changed with its monitor */
+	private static final class Window {
+		private final String type;
+		/* volatile because the eviction read it to find the oldest windows */
+		private volatile long start;
+		private long repeats = 0;
+		private long since = 0;
+		private int trace = TRACE_PENDING;
+
+		private Window(String type, long start) {
+			this.type = type;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * constructor that set the window and the handler of summaries
+	 * @param windowMillis length of window, 0 to disable the deduplication
+	 * @param handler that write the summaries
+	 */
+	ErrorDeduplicator(long windowMillis, SummaryHandler handler) {
+		this.windowMillis = windowMillis;
+		this.handler = handler;
+	}
+
+	long getWindowMillis() {
+		return windowMillis;
+	}
+	void setWindowMillis(long windowMillis) {
+		this.windowMillis = windowMillis;
+	}
+
+	/**
+	 * method that register an exception and check if its trace must be written
+	 * @param fingerprint of exception
+	 * @param type of exception
+	 * @return true if the trace must be written, then traceWritten must be called, false if it is a repeat inside the window
+	 */
+	boolean shouldWrite(String fingerprint, String type) {
+		long window = windowMillis;
+		if (window <= 0) return true;
+
+		long now = System.currentTimeMillis();
+		Window current = windows.get(fingerprint);
+		if (current == null) {
+			if (windows.size() >= MAX_FINGERPRINTS) evict(now, window);
+			current = windows.putIfAbsent(fingerprint, new Window(type, now));
+			if (current == null) return true;
+		}
+
+		long repeats;
+		long since;
+		synchronized (current) {
+			if (current.trace != TRACE_FAILED && now - current.start < window) {
+				/* the summary is written at the end of window, scheduled on the first repeat */
+				if (current.repeats++ == 0) {
+					current.since = now;
+					long start = current.start;
+					Window scheduled = current;
+					JoggerExecutors.logging().schedule(() -> summarize(fingerprint, scheduled, start), start + window - now, TimeUnit.MILLISECONDS);
+				}
+				return false;
+			}
+
+			/* a new window, the repeats of previous one are written before the trace,
+			 * without the trace of previous window they are kept for the summary of the new one */
+			boolean failed = current.trace == TRACE_FAILED;
+			repeats = failed ? 0 : current.repeats;
+			since = current.since;
+			current.start = now;
+			current.trace = TRACE_PENDING;
+			if (!failed) current.repeats = 0;
+			else if (current.repeats > 0) {
+				Window scheduled = current;
+				JoggerExecutors.logging().schedule(() -> summarize(fingerprint, scheduled, now), window, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (repeats > 0) handler.writeSummary(fingerprint, current.type, repeats, since);
+		return true;
+	}
+
+	/**
+	 * method that register the result of the write of a trace, the window end if it is not written
+	 * @param fingerprint of exception
+	 * @param written true if the trace is written on the log, false if it is dropped or failed
+	 */
+	void traceWritten(String fingerprint, boolean written) {
+		Window current = windows.get(fingerprint);
+		if (current == null) return;
+		synchronized (current) {
+			/* the repeats are kept, they are written before the next trace */
+			if (current.trace == TRACE_PENDING) current.trace = written ? TRACE_WRITTEN : TRACE_FAILED;
+		}
+	}
+
+	int getWindowCount() {
+		return windows.size();
+	}
+
+	/**
+	 * method that write the summaries of all the windows with repeats and a trace written
+	 */
+	void flush() {
+		for (String fingerprint : windows.keySet()) {
+			Window window = windows.get(fingerprint);
+			if (window != null) summarize(fingerprint, window, Long.MIN_VALUE);
+		}
+	}
+
+	/* method that write the summary of a window, if it is still the window of the repeats */
+	private void summarize(String fingerprint, Window window, long start) {
+		long repeats;
+		long since;
+		synchronized (window) {
+			if ((start != Long.MIN_VALUE && window.start != start) || window.repeats == 0 || window.trace != TRACE_WRITTEN) return;
+			repeats = window.repeats;
+			since = window.since;
+			window.repeats = 0;
+		}
+		handler.writeSummary(fingerprint, window.type, repeats, since);
+	}
+
+	/* method that write the summary of an evicted window, also without its trace because no next trace will write it */
+	private void summarizeEvicted(String fingerprint, Window window) {
+		long repeats;
+		long since;
+		synchronized (window) {
+			if (window.repeats == 0) return;
+			repeats = window.repeats;
+			since = window.since;
+			window.repeats = 0;
+		}
+		handler.writeSummary(fingerprint, window.type, repeats, since);
+	}
+
+	/* method that remove the windows over, and the oldest ones if the map is still full,
+	 * the repeats of the removed windows are written as summary */
+	private void evict(long now, long window) {
+		List<Map.Entry<String, Window>> evicted = new ArrayList<Map.Entry<String, Window>>();
+		for (Map.Entry<String, Window> entry : windows.entrySet()) {
+			if (now - entry.getValue().start >= window && windows.remove(entry.getKey(), entry.getValue())) evicted.add(entry);
+		}
+
+		int excess = windows.size() - EVICTED_SIZE;
+		if (excess > 0) {
+			/* the starts are copied before the sort, they can change while it run */
+			long[] starts = windows.values().stream().mapToLong(current -> current.start).sorted().toArray();
+			long oldest = starts.length == 0 ? Long.MIN_VALUE : starts[Math.min(excess, starts.length) - 1];
+			for (Map.Entry<String, Window> entry : windows.entrySet()) {
+				if (excess <= 0) break;
+				if (entry.getValue().start <= oldest && windows.remove(entry.getKey(), entry.getValue())) {
+					evicted.add(entry);
+					excess--;
+				}
+			}
+		}
+
+		for (Map.Entry<String, Window> entry : evicted) summarizeEvicted(entry.getKey(), entry.getValue());
+	}
+}
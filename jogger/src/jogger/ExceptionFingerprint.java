@@ -0,0 +1,54 @@
+package jogger;
+
+/**
+ * This class compute the fingerprint of an exception, made of its type, the top frames
+ * and the same for every cause. The messages are not used, they often contain values that change at every throw
+ * @author Andrea Serra
+ *
+ */
+final class ExceptionFingerprint {
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	/* guard against the causes that make a loop */
+	private static final int MAX_CAUSES = 16;
+
+	private ExceptionFingerprint() {
+	}
+
+	/**
+	 * method that compute the fingerprint of an exception
+	 * @param exception to be fingerprinted
+	 * @param frames number of top frames used for the exception and every cause
+	 * @return id of 16 hex digits
+	 */
+	static String of(Throwable exception, int frames) {
+		long hash = FNV_OFFSET;
+		Throwable current = exception;
+		for (int depth = 0; current != null && depth < MAX_CAUSES; depth++) {
+			hash = add(hash, current.getClass().getName());
+			StackTraceElement[] stackTrace = current.getStackTrace();
+			for (int i = 0; i < Math.min(frames, stackTrace.length); i++) {
+				hash = add(hash, stackTrace[i].getClassName());
+				hash = add(hash, stackTrace[i].getMethodName());
+				hash = add(hash, stackTrace[i].getLineNumber());
+			}
+			/* separator between the causes */
+			hash = add(hash, -1);
+			current = current.getCause() == current ? null : current.getCause();
+		}
+
+		String hex = Long.toHexString(hash);
+		return "0000000000000000".substring(hex.length()) + hex;
+	}
+
+	/* method that add the chars of a string to the hash */
+	private static long add(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) hash = add(hash, value.charAt(i));
+		return add(hash, 0);
+	}
+
+	/* method that add a value to the hash, with FNV-1a */
+	private static long add(long hash, int value) {
+		return (hash ^ value) * FNV_PRIME;
+	}
+}
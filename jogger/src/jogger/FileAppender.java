@@ -0,0 +1,72 @@
+package jogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class append the lines at the end of a file, without rotation.
+ * In mapped mode the file is mapped in memory and the mapping is doubled when it is full,
+ * on close the file is truncated to the bytes really written
+ * @author Andrea Serra
+ *
+ */
+public class FileAppender implements Appender {
+	private static final int MIN_MAPPED_SIZE = 1 << 20;
+	private final FileChannel channel;
+	private final boolean mapped;
+	private MappedByteBuffer mapping = null;
+	private long size;
+
+	/**
+	 * constructor that open the file with the channel
+	 * @param file where the lines are appended, created if it not exists
+	 * @throws IOException
+	 */
+	public FileAppender(File file) throws IOException {
+		this(file, false);
+	}
+
+	/**
+	 * constructor that open the file
+	 * @param file where the lines are appended, created if it not exists
+	 * @param mapped true to write the file mapped in memory, false to write it with the channel
+	 * @throws IOException
+	 */
+	public FileAppender(File file, boolean mapped) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.mapped = mapped;
+		this.size = channel.size();
+	}
+
+	@Override
+	public synchronized void append(ByteBuffer bytes) throws IOException {
+		int length = bytes.remaining();
+		if (mapped) {
+			if (mapping == null || length > mapping.remaining()) {
+				mapping = channel.map(MapMode.READ_WRITE, 0, Math.max(MIN_MAPPED_SIZE, Math.max(size + length, mapping == null ? 0 : (long) mapping.capacity() << 1)));
+				mapping.position((int) size);
+			}
+			mapping.put(bytes);
+		} else while (bytes.hasRemaining()) channel.write(bytes, size + length - bytes.remaining());
+		size += length;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			/* the padding of mapping is removed */
+			if (mapped && mapping != null) {
+				mapping.force();
+				mapping = null;
+				channel.truncate(size);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+}
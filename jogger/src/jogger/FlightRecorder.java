@@ -0,0 +1,309 @@
+package jogger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import exception.LogFileException;
+
+/**
+ * This class keep the last debug entries in a ring of fixed size out of the heap, without file I/O,
+ * so it can stay enabled while the debug is disabled. The entries are dumped on a segment of its own log
+ * when an error is written, on the shutdown of JVM or on an uncaught exception, if they are installed.
+ * The producers claim the space of an entry with a CAS and publish it with a commit marker,
+ * the entries overwritten while they are dumped are discarded
+ * @author Andrea Serra
+ *
+ */
+public final class FlightRecorder implements AutoCloseable {
+	private final static String[] LOG_DIR_DEBUG_LIST = {"debug"};
+	private static final String PREFIX_LOG_FILE_FLIGHT = "log_flight-";
+	private static final int MIN_CAPACITY = 1 << 12;
+	private static final int MAX_MESSAGE_BYTES = 1 << 13;
+	/* header of an entry: commit marker, time, thread and length of message */
+	private static final int HEADER_SIZE = 32;
+	private static final int PADDING = -1;
+	private static final VarHandle MARKER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final ThreadLocal<ByteBuffer> ENCODE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_MESSAGE_BYTES + Utf8Encoder.MAX_BYTES_PER_CHAR));
+	private final ByteBuffer ring;
+	private final ThreadLocal<ByteBuffer> ringView;
+	private final int capacity;
+	private final int maxMessageBytes;
+	private final AtomicLong cursor = new AtomicLong();
+	private final Jogger dumpLog;
+	private long dumped = 0;
+	private Thread shutdownHook = null;
+	private Thread.UncaughtExceptionHandler previousHandler = null;
+	private Thread.UncaughtExceptionHandler installedHandler = null;
+
+	/* ################################################################################# */
+	/* START CONSTRUCTORS */
+	/* ################################################################################# */
+
+	/**
+	 * constructor that set the size of ring, the entries are dumped on the log "log_flight-jogger" of debug directory
+	 * @param capacityBytes size of ring, rounded up to a power of two
+	 */
+	public FlightRecorder(int capacityBytes) {
+		this("jogger", capacityBytes);
+	}
+
+	/**
+	 * constructor that set the log name and the size of ring
+	 * @param logName for the log file of dumps, in the debug directory
+	 * @param capacityBytes size of ring, rounded up to a power of two
+	 */
+	public FlightRecorder(String logName, int capacityBytes) {
+		this.capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, capacityBytes - 1)) << 1);
+		this.maxMessageBytes = Math.min(MAX_MESSAGE_BYTES, capacity / 4 - HEADER_SIZE);
+		this.ring = ByteBuffer.allocateDirect(capacity);
+		this.ringView = ThreadLocal.withInitial(ring::duplicate);
+		this.dumpLog = new Jogger(logName, LOG_DIR_DEBUG_LIST);
+		this.dumpLog.setPrefixLogFile(PREFIX_LOG_FILE_FLIGHT);
+	}
+
+	/* ################################################################################# */
+	/* END CONSTRUCTORS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START GET AND SET */
+	/* ################################################################################# */
+
+	public int getCapacityBytes() {
+		return capacity;
+	}
+	public Jogger getDumpLog() {
+		return dumpLog;
+	}
+
+	/* ################################################################################# */
+	/* END GET AND SET */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START RECORD METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that record an entry, the message is truncated if too big
+	 * @param epochNanos time of entry
+	 * @param threadId id of thread
+	 * @param message of entry
+	 */
+	public void record(long epochNanos, long threadId, CharSequence message) {
+		ByteBuffer encoded = encode(message);
+		int length = encoded.position();
+		int size = align(HEADER_SIZE + length);
+
+		/* an entry never wrap at the end of ring, the space left is skipped */
+		long start;
+		long end;
+		do {
+			start = cursor.get();
+			int gap = capacity - index(start);
+			end = (gap < size ? start + gap : start) + size;
+		} while (!cursor.compareAndSet(start, end));
+
+		long position = end - size;
+		if (position != start && capacity - index(start) >= HEADER_SIZE) {
+			ring.putInt(index(start) + 24, PADDING);
+			MARKER.setRelease(ring, index(start), start);
+		}
+
+		/* the marker is written after the entry, it commit it */
+		int index = index(position);
+		MARKER.setRelease(ring, index, -1L);
+		ring.putLong(index + 8, epochNanos);
+		ring.putLong(index + 16, threadId);
+		ring.putInt(index + 24, length);
+		ByteBuffer view = ringView.get();
+		view.clear().position(index + HEADER_SIZE);
+		view.put(encoded.array(), 0, length);
+		MARKER.setRelease(ring, index, position);
+	}
+
+	/**
+	 * method that get the entries in the ring, from the oldest to the newest
+	 * @return lines of entries, with the text layout of debug log
+	 */
+	public List<String> snapshot() {
+		return readFrom(0).lines;
+	}
+
+	/**
+	 * method that write the entries recorded after the previous dump on the dump log
+	 * @param reason of dump, written in the first line
+	 * @return number of entries dumped
+	 */
+	public synchronized int dump(String reason) {
+		Entries entries = readFrom(dumped);
+		dumped = entries.end;
+		if (entries.lines.isEmpty()) return 0;
+
+		ArrayList<String> lines = new ArrayList<String>(entries.lines.size() + 1);
+		lines.add(formatTime(LogRecord.nowEpochNanos()) + " :: FLIGHT RECORDER -- " + entries.lines.size() + " entries before " + reason);
+		lines.addAll(entries.lines);
+		try {
+			dumpLog.writeLines(lines);
+		} catch (IOException | LogFileException e) {
+			e.printStackTrace();
+		}
+		return entries.lines.size();
+	}
+
+	/**
+	 * method that install a shutdown hook that dump the entries on the shutdown of JVM
+	 */
+	public synchronized void installShutdownHook() {
+		if (shutdownHook != null) return;
+		shutdownHook = new Thread(() -> {
+			dump("shutdown");
+			dumpLog.close();
+		}, "jogger-flight-dump");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * method that install the default handler of uncaught exceptions, it dump the entries
+	 * and then call the previous handler
+	 */
+	public synchronized void installUncaughtExceptionHandler() {
+		if (installedHandler != null) return;
+		previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.UncaughtExceptionHandler previous = previousHandler;
+		installedHandler = (thread, exception) -> {
+			dump("uncaught " + exception + " in thread " + thread.getName());
+			if (previous != null) previous.uncaughtException(thread, exception);
+			else {
+				/* same output of the default handler */
+				System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+				exception.printStackTrace(System.err);
+			}
+		};
+		Thread.setDefaultUncaughtExceptionHandler(installedHandler);
+	}
+
+	/**
+	 * method that remove the shutdown hook and the handler installed, and close the dump log
+	 */
+	@Override
+	public synchronized void close() {
+		if (shutdownHook != null) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				/* the shutdown is in progress */
+			}
+			shutdownHook = null;
+		}
+		if (installedHandler != null && Thread.getDefaultUncaughtExceptionHandler() == installedHandler) Thread.setDefaultUncaughtExceptionHandler(previousHandler);
+		installedHandler = null;
+		dumpLog.close();
+	}
+
+	/* ################################################################################# */
+	/* END RECORD METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* entries read from the ring, with the position after the last one */
+	private static final class Entries {
+		private final List<String> lines = new ArrayList<String>();
+		private long end;
+	}
+
+	/* method that read the entries committed after a position */
+	private Entries readFrom(long from) {
+		Entries entries = new Entries();
+		long end = cursor.get();
+		long position = Math.max(from, end - capacity);
+		boolean aligned = position == from;
+
+		while (position < end) {
+			int index = index(position);
+			int gap = capacity - index;
+			if (gap < HEADER_SIZE) {
+				position += gap;
+				aligned = true;
+				continue;
+			}
+
+			/* the first entry is searched by its marker, the older ones are overwritten */
+			long marker = (long) MARKER.getAcquire(ring, index);
+			if (marker != position) {
+				if (aligned) break;
+				position += 8;
+				continue;
+			}
+			int length = ring.getInt(index + 24);
+			if (length == PADDING) {
+				position += gap;
+				aligned = true;
+				continue;
+			}
+			if (length < 0 || length > maxMessageBytes) {
+				if (aligned) break;
+				position += 8;
+				continue;
+			}
+
+			long epochNanos = ring.getLong(index + 8);
+			long threadId = ring.getLong(index + 16);
+			byte[] message = new byte[length];
+			ByteBuffer view = ringView.get();
+			view.clear().position(index + HEADER_SIZE);
+			view.get(message);
+
+			/* the entry is discarded if a producer has overwritten it while it was read */
+			VarHandle.acquireFence();
+			if (cursor.get() - capacity > position) {
+				position = cursor.get() - capacity;
+				aligned = false;
+				continue;
+			}
+			entries.lines.add(formatTime(epochNanos) + " :: [" + threadId + "] " + new String(message, StandardCharsets.UTF_8));
+			position += align(HEADER_SIZE + length);
+			aligned = true;
+		}
+		entries.end = position;
+		return entries;
+	}
+
+	/* method that encode a message in the buffer of the thread, truncating it */
+	private ByteBuffer encode(CharSequence message) {
+		ByteBuffer encoded = ENCODE_BUFFER.get();
+		encoded.clear();
+		int chars = maxMessageBytes / Utf8Encoder.MAX_BYTES_PER_CHAR;
+		Utf8Encoder.encode(message.length() > chars ? message.subSequence(0, chars) : message, encoded);
+		return encoded;
+	}
+
+	/* method that get the index in the ring of a position */
+	private int index(long position) {
+		return (int) (position & (capacity - 1));
+	}
+
+	/* method that align a size to the marker */
+	private static int align(int size) {
+		return (size + 7) & ~7;
+	}
+
+	/* method that format the time of an entry */
+	private static String formatTime(long epochNanos) {
+		return TimestampRenderer.format(epochNanos, TimestampFormat.ISO);
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+}
@@ -0,0 +1,111 @@
+package jogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import exception.LogFileException;
+
+/**
+ * This class merge the lines of concurrent writers in a single write on the segment.
+ * The first writer that find no commit in progress become the leader and write
+ * the lines of all the writers queued, the others wait until their lines are committed
+ * @author Andrea Serra
+ *
+ */
+final class GroupCommitWriter {
+	private final ReentrantLock queueLock = new ReentrantLock();
+	private final Condition committedCondition = queueLock.newCondition();
+	private final SegmentWriter segmentWriter;
+	private Batch pending = new Batch(new ArrayList<Object>());
+	private ArrayList<Object> spare = new ArrayList<Object>();
+	private boolean leaderActive = false;
+
+	/**
+	 * constructor that set the segment writer
+	 * @param segmentWriter where the batches are written
+	 */
+	GroupCommitWriter(SegmentWriter segmentWriter) {
+		this.segmentWriter = segmentWriter;
+	}
+
+	/**
+	 * method that check if the segment writer is closed
+	 * @return true if the segment writer is closed, false otherwise
+	 */
+	boolean isClosed() {
+		return segmentWriter.isClosed();
+	}
+
+	/**
+	 * method that write the entries, returning when they are committed
+	 * @param entries to be written, lines or records
+	 * @throws LogFileException
+	 */
+	void write(List<?> entries) throws LogFileException {
+		Batch batch;
+
+		queueLock.lock();
+		try {
+			batch = pending;
+			batch.entries.addAll(entries);
+
+			/* wait until the batch is committed by a leader, or become the leader */
+			while (leaderActive && !batch.committed) committedCondition.awaitUninterruptibly();
+			if (batch.committed) {
+				if (batch.failure != null) throw batch.failure;
+				return;
+			}
+
+			/* take the batch of all the queued lines */
+			leaderActive = true;
+			pending = new Batch(spare);
+			spare = null;
+		} finally {
+			queueLock.unlock();
+		}
+
+		/* write the batch without holding the queue lock, the batch is committed also on unchecked failures */
+		LogFileException failure = null;
+		try {
+			segmentWriter.write(batch.entries);
+		} catch (LogFileException e) {
+			failure = e;
+		} catch (RuntimeException | Error e) {
+			failure = new LogFileException(e);
+			throw e;
+		} finally {
+			commit(batch, failure);
+		}
+
+		if (failure != null) throw failure;
+	}
+
+	/* method that mark the batch as committed and wake its writers, with the failure of its write */
+	private void commit(Batch batch, LogFileException failure) {
+		queueLock.lock();
+		try {
+			batch.entries.clear();
+			spare = batch.entries;
+			batch.entries = null;
+			batch.failure = failure;
+			batch.committed = true;
+			leaderActive = false;
+			committedCondition.signalAll();
+		} finally {
+			queueLock.unlock();
+		}
+	}
+
+	/* lines written by a leader, with the failure of their write seen by all their writers */
+	private static final class Batch {
+		private ArrayList<Object> entries;
+		private boolean committed = false;
+		private LogFileException failure = null;
+
+		private Batch(ArrayList<Object> entries) {
+			this.entries = entries;
+		}
+	}
+}
@@ -2,16 +2,14 @@ package jogger;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.lang.ref.Cleaner;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 
 import exception.LockLogException;
 import exception.LogFileException;
@@ -20,23 +18,48 @@ import exception.LogFileException;
  * This class implements a simple system to manage the logs of an application
  * @author Andrea Serra
  */
-public class Jogger {
+public class Jogger implements AutoCloseable {
 	/* PRIVATE */
+	private static final int DEFAULT_ASYNC_BUFFER_SIZE = 1024;
+	private static final int DEFAULT_STRIPE_CAPACITY = 1024;
+	private static final long DEFAULT_STRIPED_FLUSH_MILLIS = 10;
 	private String[] splitLogDir = {"jogger"};
+	private volatile BufferedEntryWriter asyncWriter = null;
+	private volatile ConsoleWriter consoleWriter = null;
+	private final AppenderFanOut appenders = new AppenderFanOut();
+	private volatile LogTarget target = null;
+	private Cleaner.Cleanable targetRelease = null;
+	/* writer whose settings are compared with the ones of this logger */
+	private GroupCommitWriter checkedWriter = null;
+	private final AtomicLong lockOverflowed = new AtomicLong();
+	/* target locked by the thread, it is unlocked also if the target of logger is changed */
+	private final ThreadLocal<LogTarget> lockedTarget = new ThreadLocal<LogTarget>();
 	/* message formats */
 	private final String DIR_SAME_NAME_MSGFRMT = "Error!!! Check that there no file with same name.\nDirectory path: {0}";
-	private final String UNBL_WORK_FILE_MSGFRMT = "Unable to work on log file '{0}'.\nError message: {1}";
 	private final String UNBL_WORK_DIR_MSGFRMT = "Unable to work on log directory '{0}'.";
+	private final String IGNORED_SETTINGS_MSGFRMT = "The log files ''{0}'' are shared with a logger that has other settings, ignored for logger ''{1}'': {2}";
 
 	/* PROTECTED */
 	protected static final String LOGS_DIR = Paths.get(System.getProperty("user.dir"), "log").toString();
-	protected final ReentrantLock REENTRANT_LOCK = new ReentrantLock();
 	protected String logDirWorkPath = getLogDirPath(splitLogDir);
 	protected String prefixLogFile = "log_";
 	protected String logName = "jogger";
 	protected String fileType = ".log";
 	protected int maxSizeBytes = 51200;
 	protected boolean lock = false;
+	protected Durability durability = Durability.NONE;
+	protected long fsyncIntervalMillis = 1000;
+	protected WriterMode writerMode = WriterMode.CHANNEL;
+	protected Compression compression = Compression.NONE;
+	protected RecordFormat recordFormat = RecordFormat.TEXT;
+	protected volatile TimestampFormat timestampFormat = TimestampFormat.ISO;
+	protected RotationPolicy rotationPolicy = RotationPolicy.SIZE;
+	protected int maxSegments = 0;
+	protected long maxTotalBytes = 0;
+	protected long maxAgeMillis = 0;
+	protected volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	protected volatile long overflowTimeoutMillis = 30000;
+	protected volatile int overflowSampleRate = 10;
 
 	/* ################################################################################# */
 	/* START CONSTRUCTORS */
@@ -98,8 +121,7 @@ public class Jogger {
 	 * @throws LockLogException
 	 */
 	public static void writeLog(String write, String logName, String... splitLogDir) throws LockLogException {
-		Jogger jogger = new Jogger(logName, splitLogDir);
-		jogger.writeLog(write);
+		JoggerRegistry.getStaticLogger(logName, null, splitLogDir).writeLog(write);
 	}
 
 	/* metodo per scrivere sul file di log */
@@ -112,8 +134,7 @@ public class Jogger {
 	 * @throws LockLogException
 	 */
 	public static void writeLog(String write, String logName, Integer maxSizeBytes, String... splitLogDir) throws LockLogException {
-		Jogger jogger = new Jogger(logName, maxSizeBytes, splitLogDir);
-		jogger.writeLog(write);
+		JoggerRegistry.getStaticLogger(logName, maxSizeBytes, splitLogDir).writeLog(write);
 	}
 
 	/* metodo che ritorna path */
@@ -137,8 +158,7 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public static File getLogFile(String logName, String... splitLogDir) throws LogFileException {
-		Jogger jogger = new Jogger(logName, splitLogDir);
-		return jogger.getFile();
+		return JoggerRegistry.getStaticLogger(logName, null, splitLogDir).getFile();
 	}
 	
 	/* metodo che ritorna il file di log su cui lavorare */
@@ -151,8 +171,7 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public static File getLogFile(String logName, Integer maxSizeBytes, String... splitLogDir) throws LogFileException {
-		Jogger jogger = new Jogger(logName, maxSizeBytes, splitLogDir);
-		return jogger.getFile();
+		return JoggerRegistry.getStaticLogger(logName, maxSizeBytes, splitLogDir).getFile();
 	}
 
 	/**
@@ -163,8 +182,7 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public static File getLogFileIfExists(String logName, String... splitLogDir) throws LogFileException {
-		Jogger jogger = new Jogger(logName, splitLogDir);
-		return jogger.getFileIfExists();
+		return JoggerRegistry.getStaticLogger(logName, null, splitLogDir).getFileIfExists();
 	}
 	
 	/**
@@ -176,8 +194,7 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public static File getLogFileIfExists(String logName, Integer maxSizeBytes, String... splitLogDir) throws LogFileException {
-		Jogger jogger = new Jogger(logName, maxSizeBytes, splitLogDir);
-		return jogger.getFileIfExists();
+		return JoggerRegistry.getStaticLogger(logName, maxSizeBytes, splitLogDir).getFileIfExists();
 	}
 
 	/* START GET PATH */
@@ -247,24 +264,29 @@ public class Jogger {
 	}
 	public void setPrefixLogFile(String prefixLogFile) {
 		this.prefixLogFile = prefixLogFile;
+		releaseTarget();
 	}
 	public String getLogName() {
 		return logName;
 	}
 	public void setLogName(String logName) {
 		this.logName = logName;
+		releaseTarget();
 	}
 	public String getFileType() {
 		return fileType;
 	}
 	public void setFileType(String fileType) {
 		this.fileType = fileType;
+		releaseTarget();
 	}
 	public int getMaxSizeBytes() {
 		return maxSizeBytes;
 	}
-	public void setMaxSizeBytes(int maxSizeBytes) {
+	public synchronized void setMaxSizeBytes(int maxSizeBytes) {
 		this.maxSizeBytes = maxSizeBytes;
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setMaxSizeBytes(maxSizeBytes);
 	}
 	public boolean isLock() {
 		return lock;
@@ -272,12 +294,121 @@ public class Jogger {
 	public void setLock(boolean lock) {
 		this.lock = lock;
 	}
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+	public synchronized void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+		updateOverflowPolicy();
+	}
+	public long getOverflowTimeoutMillis() {
+		return overflowTimeoutMillis;
+	}
+	public synchronized void setOverflowTimeoutMillis(long overflowTimeoutMillis) {
+		this.overflowTimeoutMillis = overflowTimeoutMillis;
+		updateOverflowPolicy();
+	}
+	public int getOverflowSampleRate() {
+		return overflowSampleRate;
+	}
+	public synchronized void setOverflowSampleRate(int overflowSampleRate) {
+		this.overflowSampleRate = Math.max(1, overflowSampleRate);
+		updateOverflowPolicy();
+	}
+	public Durability getDurability() {
+		return durability;
+	}
+	public synchronized void setDurability(Durability durability) {
+		this.durability = durability;
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setDurability(durability, fsyncIntervalMillis);
+	}
+	public long getFsyncIntervalMillis() {
+		return fsyncIntervalMillis;
+	}
+	public synchronized void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+		this.fsyncIntervalMillis = fsyncIntervalMillis;
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setDurability(durability, fsyncIntervalMillis);
+	}
+	public WriterMode getWriterMode() {
+		return writerMode;
+	}
+	public synchronized void setWriterMode(WriterMode writerMode) {
+		this.writerMode = writerMode;
+		/* the writer of target is created again with the new mode */
+		if (target != null) target.resetWriter();
+	}
+	public Compression getCompression() {
+		return compression;
+	}
+	public synchronized void setCompression(Compression compression) {
+		this.compression = compression;
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setCompression(compression);
+	}
+	public RotationPolicy getRotationPolicy() {
+		return rotationPolicy;
+	}
+	public synchronized void setRotationPolicy(RotationPolicy rotationPolicy) {
+		this.rotationPolicy = rotationPolicy;
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setRotationPolicy(rotationPolicy);
+	}
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+	/**
+	 * method that set the max number of segments kept, the oldest are deleted in background
+	 * @param maxSegments max number of segments, with the active one, 0 for no limit
+	 */
+	public synchronized void setMaxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+		updateRetention();
+	}
+	public long getMaxTotalBytes() {
+		return maxTotalBytes;
+	}
+	/**
+	 * method that set the max bytes of segments kept, the oldest are deleted in background
+	 * @param maxTotalBytes max bytes of segments, with the active one, 0 for no limit
+	 */
+	public synchronized void setMaxTotalBytes(long maxTotalBytes) {
+		this.maxTotalBytes = maxTotalBytes;
+		updateRetention();
+	}
+	public long getMaxAgeMillis() {
+		return maxAgeMillis;
+	}
+	/**
+	 * method that set the max age of segments kept, from their last write, the oldest are deleted in background
+	 * @param maxAgeMillis max age of closed segments, 0 for no limit
+	 */
+	public synchronized void setMaxAgeMillis(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+		updateRetention();
+	}
+	public RecordFormat getRecordFormat() {
+		return recordFormat;
+	}
+	public void setRecordFormat(RecordFormat recordFormat) {
+		this.recordFormat = recordFormat;
+		/* the binary segments have their own file type */
+		releaseTarget();
+	}
+	public TimestampFormat getTimestampFormat() {
+		return timestampFormat;
+	}
+	public void setTimestampFormat(TimestampFormat timestampFormat) {
+		this.timestampFormat = timestampFormat;
+	}
 	public String[] getSplitLogDir() {
 		return splitLogDir;
 	}
 	public void setSplitLogDir(String... splitLogDir) {
 		this.splitLogDir = splitLogDir;
 		this.logDirWorkPath = getLogDirPath(splitLogDir);
+		releaseTarget();
 	}
 
 	/* ################################################################################# */
@@ -296,21 +427,17 @@ public class Jogger {
 	 * @throws LockLogException
 	 */
 	public void writeLog(String write) throws LockLogException {
+		Object entry = recordFormat == RecordFormat.BINARY ? LogRecord.plain(write) : write;
+
+		/* if async mode is enabled, hand off the line to the writer thread */
+		if (publishAsync(entry)) return;
 		if (!tryLock()) return;
 
-		RandomAccessFile raf = null;
 		try {
-			File fLog = getFile();
-			raf = new RandomAccessFile(fLog, "rw");
-			raf.seek(raf.length());
-			raf.writeBytes(write.concat("\n"));
+			writeLines(Collections.singletonList(entry));
 		} catch (IOException | LogFileException e) {
 			e.printStackTrace();
 		} finally {
-			try {
-				raf.close();
-			} catch (IOException e) {
-			}
 			tryUnlock();
 		}
 	}
@@ -333,38 +460,7 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public File getFile() throws LogFileException {
-		File logDir = getLogDir(logDirWorkPath);
-		File logFile = null;
-
-		/* build file name */
-		StringBuilder stringBuilder = new StringBuilder();
-		stringBuilder.append(prefixLogFile);
-		stringBuilder.append(logName);
-		stringBuilder.append('-');
-		String fileNameLog = stringBuilder.toString();
-
-		/* build regex */
-		stringBuilder = new StringBuilder();
-		stringBuilder.append(fileNameLog);
-		stringBuilder.append("([\\d]{6})");
-		stringBuilder.append(fileType);
-		String regex = stringBuilder.toString();
-
-		/* search log files in the directory */
-		ArrayList<String> logFileList = new ArrayList<String>(getLogfiles(logDir, regex));
-
-		if (logFileList.isEmpty()) {
-			/* if no log file found create new log file */
-			logFile = Paths.get(logDirWorkPath, fileNameLog + "000000" + fileType).toFile();
-			try {
-				if (!logFile.createNewFile()) throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logFile.getPath(), "Check permissions."));
-			} catch (IOException e) {
-				throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logFile.getPath(), e.getMessage()));
-			}
-			/* else get file to work on */
-		} else logFile = getLogFileToWork(logFileList, logDirWorkPath, regex, fileNameLog);
-
-		return logFile;
+		return getSegmentWriter().getActiveFile();
 	}
 
 	/**
@@ -374,65 +470,365 @@ public class Jogger {
 	 * @throws LogFileException
 	 */
 	public File getFileIfExists() throws LogFileException {
-		File logDir = getLogDir(logDirWorkPath); 
-		File fileLog = null;
+		/* return if not log file found, else get log file to work on */
+		if (getSegmentWriter().listSegments().isEmpty()) return null;
+		return getFile();
+	}
 
-		/* build file name */
-		StringBuilder stringBuilder = new StringBuilder();
-		stringBuilder.append(prefixLogFile);
-		stringBuilder.append(logName);
-		stringBuilder.append('-');
-		String fileNameLog = stringBuilder.toString();
+	/**
+	 * method that list the segments of log, compressed or not
+	 * @return list of segments, from the oldest to the newest
+	 * @throws LogFileException
+	 */
+	public List<File> getSegments() throws LogFileException {
+		return getSegmentWriter().listSegments();
+	}
 
-		/* build regex */
-		stringBuilder = new StringBuilder();
-		stringBuilder.append(fileNameLog);
-		stringBuilder.append("([\\d]{6})");
-		stringBuilder.append(fileType);
-		String regex = stringBuilder.toString();
+	/**
+	 * method that query the entries written in a range of time across all the segments.
+	 * The segments out of range are skipped and the others are read from near the start of range
+	 * @param query with range of time and filters
+	 * @return entries rendered with the text layout, from the oldest to the newest
+	 * @throws LogFileException
+	 */
+	public List<String> query(LogQuery query) throws LogFileException {
+		/* the entries of writer thread are written before the query */
+		flush();
+		return SegmentQuery.run(getSegmentWriter(), query);
+	}
 
-		/* search log files in the directory */
-		ArrayList<String> logFileList = new ArrayList<String>(getLogfiles(logDir, regex));
-		
-		/* return if not log file found */
-		if (logFileList.isEmpty()) return null;
+	/**
+	 * method that follow the log, publishing the lines written from now on.
+	 * The rotated segments are followed without missing or duplicating lines
+	 * and every subscriber is served by its own thread, until it cancel the subscription
+	 * @return publisher of lines
+	 * @throws LogFileException
+	 */
+	public Flow.Publisher<String> follow() throws LogFileException {
+		/* the lines of writer thread are written before the start */
+		flush();
+		return new LogFollower(getSegmentWriter(), logName);
+	}
 
-		/* get log file to work on and return it */
-		fileLog = getLogFileToWork(logFileList, logDirWorkPath, regex, fileNameLog);
-		return fileLog;
+	/**
+	 * method that get a snapshot of the metrics of log, shared by all the loggers of the same log files.
+	 * The same metrics are exposed by the MXBean jogger:type=Log
+	 * @return snapshot of metrics
+	 */
+	public LogMetrics getMetrics() {
+		return new LogMetrics(getTarget().metrics);
 	}
 
 	/* ################################################################################# */
 	/* END LOG METHODS */
 	/* ################################################################################# */
 
+	/* ################################################################################# */
+	/* START ASYNC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that enable the async mode with default buffer size and park wait strategy
+	 */
+	public void enableAsync() {
+		enableAsync(DEFAULT_ASYNC_BUFFER_SIZE, WaitStrategy.PARK);
+	}
+
+	/**
+	 * method that enable the async mode, the lines are published in a bounded ring buffer
+	 * and a dedicated thread write them on the log file
+	 * @param bufferSize max number of lines queued, rounded up to a power of two
+	 * @param waitStrategy used by producers and writer thread while waiting
+	 */
+	public synchronized void enableAsync(int bufferSize, WaitStrategy waitStrategy) {
+		if (asyncWriter != null) return;
+		JoggerMetrics metrics = getTarget().metrics;
+		startAsync(new AsyncWriter("jogger-async-" + logName, bufferSize, waitStrategy, this::writeBatch, metrics::dropped), metrics);
+	}
+
+	/**
+	 * method that enable the striped mode with a stripe for every two processors
+	 */
+	public void enableStriped() {
+		enableStriped(Runtime.getRuntime().availableProcessors() * 2, DEFAULT_STRIPE_CAPACITY, DEFAULT_STRIPED_FLUSH_MILLIS);
+	}
+
+	/**
+	 * method that enable the striped mode, every thread append its lines on one of the stripes without shared locks
+	 * and a dedicated thread merge them in order of time on the log file,
+	 * when a stripe is half full or at every interval.
+	 * The lines of a thread keep their order, the lines of different threads are ordered by time for every merge
+	 * @param stripes number of stripes, rounded up to a power of two
+	 * @param stripeCapacity max number of lines of a stripe, rounded up to a power of two
+	 * @param flushIntervalMillis max time before the lines are written
+	 */
+	public synchronized void enableStriped(int stripes, int stripeCapacity, long flushIntervalMillis) {
+		if (asyncWriter != null) return;
+		JoggerMetrics metrics = getTarget().metrics;
+		startAsync(new StripedWriter("jogger-striped-" + logName, stripes, stripeCapacity, flushIntervalMillis, WaitStrategy.PARK, this::writeBatch, metrics), metrics);
+	}
+
+	/**
+	 * method that enable the async console with default buffer size, dropping the lines when the console is behind
+	 */
+	public void enableAsyncConsole() {
+		enableAsyncConsole(DEFAULT_ASYNC_BUFFER_SIZE, OverflowPolicy.DROP_NEWEST, 0);
+	}
+
+	/**
+	 * method that enable the async console, the console output is queued in its own bounded ring buffer
+	 * and a dedicated thread print it in batches, so a slow console never delay the log file
+	 * @param bufferSize max number of lines queued, rounded up to a power of two
+	 * @param overflowPolicy applied when the buffer is full, the block policy wait up to the timeout and then drop the line
+	 * @param timeoutMillis max wait for a free slot with the block policy
+	 */
+	public synchronized void enableAsyncConsole(int bufferSize, OverflowPolicy overflowPolicy, long timeoutMillis) {
+		if (consoleWriter != null) return;
+		consoleWriter = new ConsoleWriter("jogger-console-" + logName, bufferSize, overflowPolicy, timeoutMillis);
+	}
+
+	/**
+	 * method that check if the async console is enabled
+	 * @return true if async console is enabled, false otherwise
+	 */
+	public boolean isAsyncConsole() {
+		return consoleWriter != null;
+	}
+
+	/**
+	 * method that get the console lines dropped because the console was behind
+	 * @return number of lines dropped, 0 if async console is disabled
+	 */
+	public long getConsoleDroppedLines() {
+		ConsoleWriter writer = consoleWriter;
+		return writer == null ? 0 : writer.getDropped();
+	}
+
+	/**
+	 * method that check if the async mode is enabled, with ring buffer or stripes
+	 * @return true if async mode is enabled, false otherwise
+	 */
+	public boolean isAsync() {
+		return asyncWriter != null;
+	}
+
+	/**
+	 * method that check if the striped mode is enabled
+	 * @return true if striped mode is enabled, false otherwise
+	 */
+	public boolean isStriped() {
+		return asyncWriter instanceof StripedWriter;
+	}
+
+	/**
+	 * method that wait until all the lines queued in async mode, on async console and for the appenders are written
+	 */
+	public void flush() {
+		BufferedEntryWriter writer = asyncWriter;
+		if (writer != null) writer.flush();
+		ConsoleWriter console = consoleWriter;
+		if (console != null) console.flush();
+		appenders.flush();
+	}
+
+	/**
+	 * method that disable the async mode and the async console, writing all the lines still queued,
+	 * close the appenders and the active log file
+	 */
+	@Override
+	public void close() {
+		BufferedEntryWriter writer;
+		ConsoleWriter console;
+		synchronized (this) {
+			writer = asyncWriter;
+			asyncWriter = null;
+			console = consoleWriter;
+			consoleWriter = null;
+		}
+		if (console != null) console.close();
+		/* the writer thread could need this monitor while draining */
+		if (writer != null) {
+			writer.close();
+			LogTarget logTarget = target;
+			if (logTarget != null) logTarget.metrics.removeQueue(writer);
+		}
+		appenders.close();
+		releaseTarget();
+	}
+
+	/* ################################################################################# */
+	/* END ASYNC METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START APPENDER METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that add an appender with default buffer size
+	 * @param appender that receive the lines written on log file
+	 */
+	public void addAppender(Appender appender) {
+		addAppender(appender, DEFAULT_ASYNC_BUFFER_SIZE);
+	}
+
+	/**
+	 * method that add an appender, it receive the lines written on the log file with the text layout,
+	 * on its own thread. When it is behind, the batches are dropped for it only
+	 * @param appender that receive the lines written on log file
+	 * @param bufferSize max number of batches queued, rounded up to a power of two
+	 */
+	public void addAppender(Appender appender, int bufferSize) {
+		appenders.add(appender, "jogger-appender-" + logName + "-" + appender.getClass().getSimpleName(), bufferSize);
+	}
+
+	/**
+	 * method that remove an appender and close it, after the batches queued are appended
+	 * @param appender to be removed
+	 * @return true if the appender was added, false otherwise
+	 */
+	public boolean removeAppender(Appender appender) {
+		return appenders.remove(appender);
+	}
+
+	/**
+	 * method that get the batches of lines dropped because an appender was behind or failed
+	 * @return number of batches dropped, counted for every appender
+	 */
+	public long getAppenderDroppedBatches() {
+		return appenders.getDropped();
+	}
+
+	/* ################################################################################# */
+	/* END APPENDER METHODS */
+	/* ################################################################################# */
+
 	/* ################################################################################# */
 	/* START PROTECTED METHODS */
 	/* ################################################################################# */
 	
 	/**
-	 * method that check if is set lock and try to lock a document
-	 * @return true if lock is disabled or successfully lock a file, false otherwise  
-	 * @throws JSXLockException
+	 * method that check if is set lock and try to lock a document, applying the overflow policy if it is taken
+	 * @return true if lock is disabled or successfully lock a file, false if the entry is dropped
+	 * @throws LockLogException if the wait for the lock is timed out
 	 */
 	protected boolean tryLock() throws LockLogException {
-		if (!lock) return true;
+		return tryLock(1, overflowPolicy);
+	}
+
+	/**
+	 * method that check if lock is set and unlock a document 
+	 */
+	protected void tryUnlock() {
+		LogTarget logTarget = lockedTarget.get();
+		if (logTarget == null) return;
+		logTarget.lock.unlock();
+		if (!logTarget.lock.isHeldByCurrentThread()) lockedTarget.set(null);
+	}
+
+	/**
+	 * method that print a line on the standard output, queued for the console thread if async console is enabled
+	 * @param line to be printed
+	 */
+	protected void printConsole(String line) {
+		ConsoleWriter console = consoleWriter;
+		if (console != null) console.print(line, false);
+		else ConsoleWriter.printNow(line, false);
+	}
+
+	/**
+	 * method that print a line on the standard error, queued for the console thread if async console is enabled
+	 * @param line to be printed
+	 */
+	protected void printConsoleError(String line) {
+		ConsoleWriter console = consoleWriter;
+		if (console != null) console.print(line, true);
+		else ConsoleWriter.printNow(line, true);
+	}
 
+	/**
+	 * method that publish an entry to the writer thread if async mode is enabled
+	 * @param entry to be written, a line or a record
+	 * @return true if the entry is published, false if async mode is disabled
+	 */
+	protected boolean publishAsync(Object entry) {
+		BufferedEntryWriter writer = asyncWriter;
+		return writer != null && writer.publish(entry);
+	}
+
+	/**
+	 * method that append the entries at the end of the log file
+	 * @param lines to be written, lines or records
+	 * @throws IOException
+	 * @throws LogFileException
+	 */
+	protected void writeLines(List<?> lines) throws IOException, LogFileException {
+		/* the appenders are served by their own threads, also when the log file fails */
+		appenders.publish(lines);
+		LogTarget logTarget = getTarget();
+		long start = System.nanoTime();
 		try {
-			if (!REENTRANT_LOCK.tryLock(30, TimeUnit.SECONDS)) throw new LockLogException("Error Timeout Reentrant Lock");
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-			return false;
+			while (true) {
+				GroupCommitWriter writer = logTarget.getGroupCommitWriter();
+				if (writer == null) {
+					openWriter(logTarget);
+					continue;
+				}
+				if (writer != checkedWriter) checkSettings(logTarget, writer);
+				try {
+					writer.write(lines);
+					break;
+				} catch (LogFileException e) {
+					/* the writer is closed by a change of settings, the lines are written on the new one */
+					if (!writer.isClosed()) throw e;
+				}
+			}
+		} catch (LogFileException e) {
+			logTarget.metrics.failed();
+			throw e;
 		}
+		/* the latency of a sync write include the wait of group commit */
+		logTarget.metrics.writeLatency.record(System.nanoTime() - start);
+	}
 
-		return true;
+	/**
+	 * method that get the writer of the active segment, shared by all the loggers of the same log files.
+	 * The log directory is scanned only when the writer is created
+	 * @return segment writer
+	 * @throws LogFileException
+	 */
+	SegmentWriter getSegmentWriter() throws LogFileException {
+		LogTarget logTarget = getTarget();
+		SegmentWriter writer = logTarget.getSegmentWriter();
+		return writer != null ? writer : openWriter(logTarget);
 	}
 
 	/**
-	 * method that check if lock is set and unlock a document 
+	 * method that get the target shared by all the loggers of the same log files
+	 * @return log target
 	 */
-	protected void tryUnlock() {
-		if (lock) REENTRANT_LOCK.unlock();
+	LogTarget getTarget() {
+		LogTarget logTarget = target;
+		if (logTarget != null) return logTarget;
+		synchronized (this) {
+			if (target == null) {
+				target = JoggerRegistry.acquire(logDirWorkPath, prefixLogFile, logName, getSegmentFileType());
+				/* an unclosed logger release its reference when it is collected */
+				targetRelease = JoggerRegistry.releaseOnCollect(this, target);
+			}
+			return target;
+		}
+	}
+
+	/**
+	 * method that release the shared target, it will be acquired again on next write
+	 */
+	protected synchronized void releaseTarget() {
+		if (target == null) return;
+		targetRelease.clean();
+		targetRelease = null;
+		target = null;
+		checkedWriter = null;
 	}
 
 	/* ################################################################################# */
@@ -443,64 +839,117 @@ public class Jogger {
 	/* START PRIVATE METHODS */
 	/* ################################################################################# */
 
-	/* method that get the log directory */
-	private File getLogDir(String pathDirLog) throws LogFileException {
-		File logDir = new File(pathDirLog);
+	/* method that create the writers of target with the settings of this logger */
+	private SegmentWriter openWriter(LogTarget logTarget) throws LogFileException {
+		return logTarget.openWriter(getLogDir(logDirWorkPath), this);
+	}
 
-		/* create if no exists */
-		if (!logDir.exists()) logDir.mkdirs();
-		/* check if is not a file */
-		else if (logDir.isFile()) throw new LogFileException(MessageFormat.format(DIR_SAME_NAME_MSGFRMT, logDir.getAbsolutePath()));
+	/* method that report once for every writer the settings of this logger ignored by the shared writer */
+	private void checkSettings(LogTarget logTarget, GroupCommitWriter writer) {
+		checkedWriter = writer;
+		String ignored = logTarget.getIgnoredSettings(this);
+		if (ignored != null) JoggerStatus.warn(MessageFormat.format(IGNORED_SETTINGS_MSGFRMT, logTarget.getName(), logName, ignored));
+	}
 
-		/* check if the directory is created */
-		if (!logDir.isDirectory()) throw new LogFileException(MessageFormat.format(UNBL_WORK_DIR_MSGFRMT, logDir.getPath()));
+	/* method that apply the retention to the writer of target, if it is opened */
+	private void updateRetention() {
+		SegmentWriter writer = target == null ? null : target.getSegmentWriter();
+		if (writer != null) writer.setRetention(maxSegments, maxTotalBytes, maxAgeMillis);
+	}
 
-		return logDir;
+	/* method that get the file type of segments, the binary segments have their own suffix */
+	private String getSegmentFileType() {
+		return recordFormat == RecordFormat.BINARY ? fileType + RecordFormat.BINARY_SUFFIX : fileType;
 	}
 
-	/* method that search log files in the directory */
-	private List<String> getLogfiles(File logDir, String regex) {
-		ArrayList<String> logFiles = new ArrayList<String>();
+	/* method that take the lock according to the overflow policy, the entries not written are counted as dropped */
+	private boolean tryLock(int entries, OverflowPolicy policy) throws LockLogException {
+		if (!lock) return true;
 
-		/* list the file in the directory */
-		String[] fileList = logDir.list();
-		/* if is a log file, add it in the array */
-		for (String fname : fileList) if (Pattern.matches(regex, fname)) logFiles.add(fname);
+		LogTarget logTarget = getTarget();
+		JoggerMetrics metrics = logTarget.metrics;
+		if (logTarget.lock.tryLock()) {
+			metrics.lockWait.record(0);
+			lockedTarget.set(logTarget);
+			return true;
+		}
 
-		return logFiles;
-	}
+		/* the lock is taken by another writer */
+		boolean wait = policy == OverflowPolicy.BLOCK || (policy == OverflowPolicy.SAMPLE && lockOverflowed.getAndIncrement() % overflowSampleRate == 0);
+		if (!wait) {
+			metrics.dropped(entries);
+			return false;
+		}
+
+		/* the timed wait of ReentrantLock park the thread, it is safe for the virtual threads */
+		long start = System.nanoTime();
+		boolean locked = false;
+		boolean interrupted = false;
+		try {
+			locked = logTarget.lock.tryLock(overflowTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			/* the interrupt is kept for the caller */
+			Thread.currentThread().interrupt();
+			interrupted = true;
+		}
+		metrics.lockWait.record(System.nanoTime() - start);
+		if (locked) {
+			lockedTarget.set(logTarget);
+			return true;
+		}
 
-	/* method that get a log file to work on */
-	private File getLogFileToWork(List<String> logFileList, String pathDirLog, String regex, String fileNameLog) throws LogFileException {
-		File logFile = null;
-		/* sort and reverse the array */
-		Collections.sort(logFileList);
-		Collections.reverse(logFileList);
+		metrics.dropped(entries);
+		if (interrupted) return false;
+		metrics.failed();
+		throw new LockLogException("Error Timeout Reentrant Lock");
+	}
 
-		/* get file to work on */
-		logFile = Paths.get(pathDirLog, logFileList.get(0)).toFile();
+	/* method that start the writer thread of async mode */
+	private void startAsync(BufferedEntryWriter writer, JoggerMetrics metrics) {
+		writer.setOverflowPolicy(overflowPolicy, overflowTimeoutMillis, overflowSampleRate);
+		metrics.addQueue(writer);
+		asyncWriter = writer;
+	}
 
-		/* check the max size of log file */
-		if (logFile.length() > maxSizeBytes) {
-			/* get number of log */
-			Matcher m = Pattern.compile(regex).matcher(logFileList.get(0));
-			m.find();
-			int nLog = Integer.valueOf(m.group(1));
+	/* method that apply the overflow policy to the writer thread, if async mode is enabled */
+	private void updateOverflowPolicy() {
+		BufferedEntryWriter writer = asyncWriter;
+		if (writer != null) writer.setOverflowPolicy(overflowPolicy, overflowTimeoutMillis, overflowSampleRate);
+	}
 
-			/* increment nLog for new log file and create string */
-			String nLogStr = String.format("%06d",  ++nLog);
+	/* method used by the writer thread to write a batch of entries */
+	private void writeBatch(List<Object> lines) {
+		/* the overflow policy is applied by the producers, the writer thread wait for the lock */
+		try {
+			if (!tryLock(lines.size(), OverflowPolicy.BLOCK)) return;
+		} catch (LockLogException e) {
+			e.printStackTrace();
+			return;
+		}
 
-			/* get new log file */
-			logFile = Paths.get(pathDirLog, fileNameLog + nLogStr + fileType).toFile();
-			try {
-				/* create the new log file */
-				if (!logFile.createNewFile()) throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logFile.getPath(), "Check permissions."));
-			} catch (IOException e) {
-				throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logFile.getPath(), e.getMessage()));
-			}
+		try {
+			writeLines(lines);
+		} catch (IOException | LogFileException e) {
+			getTarget().metrics.dropped(lines.size());
+			e.printStackTrace();
+		} finally {
+			tryUnlock();
 		}
+	}
 
-		return logFile;
+	/* method that get the log directory */
+	private File getLogDir(String pathDirLog) throws LogFileException {
+		File logDir = new File(pathDirLog);
+
+		/* create if no exists */
+		if (!logDir.exists()) logDir.mkdirs();
+		/* check if is not a file */
+		else if (logDir.isFile()) throw new LogFileException(MessageFormat.format(DIR_SAME_NAME_MSGFRMT, logDir.getAbsolutePath()));
+
+		/* check if the directory is created */
+		if (!logDir.isDirectory()) throw new LogFileException(MessageFormat.format(UNBL_WORK_DIR_MSGFRMT, logDir.getPath()));
+
+		return logDir;
 	}
 
 	/* ################################################################################# */
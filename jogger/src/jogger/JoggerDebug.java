@@ -1,13 +1,11 @@
 package jogger;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.text.MessageFormat;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import exception.LogFileException;
 import exception.LockLogException;
@@ -19,9 +17,17 @@ import exception.LockLogException;
  */
 public class JoggerDebug extends Jogger {
 	private final static String[] LOG_DIR_DEBUG_LIST = {"debug"};
+	private static final int DEFAULT_BUILDER_SIZE = 512;
+	private static final int MAX_KEPT_BUILDER_SIZE = 1 << 16;
+	private static final ThreadLocal<StringBuilder> OUT_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(DEFAULT_BUILDER_SIZE));
 	private final String PREFIX_LOG_FILE_DEBUG = "log_debug-";
 	private boolean printStackTrace = true;
+	private int stackTraceDepth = Integer.MAX_VALUE;
 	private boolean debug = false;
+	private final DebugRateLimiter rateLimiter = new DebugRateLimiter(this::writeSuppressed);
+	private long suppressedReportMillis = 60000;
+	private ScheduledFuture<?> suppressedReport = null;
+	private volatile FlightRecorder flightRecorder = null;
 
 	/* ################################################################################# */
 	/* START CONSTRUCTORS */
@@ -74,11 +80,70 @@ public class JoggerDebug extends Jogger {
 	public void setPrintStackTrace(boolean printStackTrace) {
 		this.printStackTrace = printStackTrace;
 	}
+	public int getStackTraceDepth() {
+		return stackTraceDepth;
+	}
+	public void setStackTraceDepth(int stackTraceDepth) {
+		this.stackTraceDepth = stackTraceDepth;
+	}
+	public FlightRecorder getFlightRecorder() {
+		return flightRecorder;
+	}
+	public void setFlightRecorder(FlightRecorder flightRecorder) {
+		this.flightRecorder = flightRecorder;
+	}
+	public synchronized long getSuppressedReportMillis() {
+		return suppressedReportMillis;
+	}
+	public synchronized void setSuppressedReportMillis(long suppressedReportMillis) {
+		this.suppressedReportMillis = Math.max(1, suppressedReportMillis);
+		if (suppressedReport != null) scheduleSuppressedReport();
+	}
 
 	/* ################################################################################# */
 	/* END GET AND SET */
 	/* ################################################################################# */
 
+	/* ################################################################################# */
+	/* START RATE LIMIT METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that set the default limit of entries, applied to every template and to every supplier call site
+	 * without its own limit. The entries suppressed are counted and reported on the log periodically
+	 * @param entriesPerSecond max rate of every template, 0 for no rate limit
+	 * @param burst max entries written at once, before the rate is applied
+	 * @param sampleRate probability from 0 to 1 that an entry is written, 1 for all
+	 */
+	public void setRateLimit(double entriesPerSecond, int burst, double sampleRate) {
+		rateLimiter.setDefaultLimit(entriesPerSecond, burst, sampleRate);
+		startSuppressedReport();
+	}
+
+	/**
+	 * method that set the limit of entries of a template, it replace the default limit
+	 * @param template of message, the same string passed to the write methods
+	 * @param entriesPerSecond max rate of template, 0 for no rate limit
+	 * @param burst max entries written at once, before the rate is applied
+	 * @param sampleRate probability from 0 to 1 that an entry is written, 1 for all
+	 */
+	public void setRateLimit(String template, double entriesPerSecond, int burst, double sampleRate) {
+		rateLimiter.setLimit(template, entriesPerSecond, burst, sampleRate);
+		startSuppressedReport();
+	}
+
+	/**
+	 * method that remove the limit of a template, the default limit is applied to it
+	 * @param template of message
+	 */
+	public void removeRateLimit(String template) {
+		rateLimiter.removeLimit(template);
+	}
+
+	/* ################################################################################# */
+	/* END RATE LIMIT METHODS */
+	/* ################################################################################# */
+
 	/* ################################################################################# */
 	/* START LOG METHODS */
 	/* ################################################################################# */
@@ -92,55 +157,92 @@ public class JoggerDebug extends Jogger {
 	 */
 	@Override
 	public void writeLog(String write) {
-		/* if debug disable return */
-		if (!debug) return;
-		
-		try {
-			/* if trylock failed return */
-			if (!tryLock()) return;
-			
-			/* read file with random access file */
-			RandomAccessFile raf = null;
-			try {
-				File fLog = getFile();
-				StringBuilder out = new StringBuilder();
-				out.append(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
-				if (printStackTrace) {
-					/* append message */
-					out.append(" :: Message: ").append(write);
-					
-					/* get stack trace */
-					ArrayList<StackTraceElement> stackTrace =  new ArrayList<StackTraceElement>(Arrays.asList(Thread.currentThread().getStackTrace()));
-					
-					/* remove JoggerDebug and Thread from stack trace */
-					stackTrace.remove(0);
-					stackTrace.remove(0);
-					
-					/* append stack trace */
-					for (StackTraceElement e : stackTrace) out.append("\n\t").append(e.toString());
-					
-					/* append simple output */
-				} else out.append(" :: ").append(write);
-				
-				/* print output */
-				System.out.println(out.append("\n"));
-				
-				/* write output on file */
-				raf = new RandomAccessFile(fLog, "rw");
-				raf.seek(raf.length());
-				raf.writeBytes(out.append("\n").toString());
-			} catch (IOException | LogFileException e) {
-				e.printStackTrace();
-			} finally {
-				try {
-					raf.close();
-				} catch (IOException e) {
-				}
-				tryUnlock();
-			}
-		} catch (LockLogException e) {
-			e.printStackTrace();
-		}
+		/* if debug disable or entry suppressed, it is only recorded by the flight recorder */
+		if (isAdmitted(write)) writeDebug(write, 0, null, null, null);
+		else if (flightRecorder != null) recordFlight(write, 0, null, null, null);
+	}
+
+	/**
+	 * method that write to the log file the message supplied, the supplier is called only if debug is enabled or a flight recorder is set
+	 * @param message supplier of message
+	 */
+	public void writeLog(Supplier<String> message) {
+		/* the class of lambda identify the call site */
+		if (isAdmitted(message.getClass())) writeDebug(message.get(), 0, null, null, null);
+		else if (flightRecorder != null) recordFlight(message.get(), 0, null, null, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholder {0}
+	 * @param arg0 first argument
+	 */
+	public void writeLog(String template, Object arg0) {
+		if (isAdmitted(template)) writeDebug(template, 1, arg0, null, null);
+		else if (flightRecorder != null) recordFlight(template, 1, arg0, null, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholders {0} and {1}
+	 * @param arg0 first argument
+	 * @param arg1 second argument
+	 */
+	public void writeLog(String template, Object arg0, Object arg1) {
+		if (isAdmitted(template)) writeDebug(template, 2, arg0, arg1, null);
+		else if (flightRecorder != null) recordFlight(template, 2, arg0, arg1, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholders {0}, {1} and {2}
+	 * @param arg0 first argument
+	 * @param arg1 second argument
+	 * @param arg2 third argument
+	 */
+	public void writeLog(String template, Object arg0, Object arg1, Object arg2) {
+		if (isAdmitted(template)) writeDebug(template, 3, arg0, arg1, arg2);
+		else if (flightRecorder != null) recordFlight(template, 3, arg0, arg1, arg2);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholder {0}
+	 * @param arg0 first argument
+	 */
+	public void writeLog(String template, int arg0) {
+		if (isAdmitted(template)) writeDebug(template, 1, arg0, null, null);
+		else if (flightRecorder != null) recordFlight(template, 1, arg0, null, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholder {0}
+	 * @param arg0 first argument
+	 */
+	public void writeLog(String template, long arg0) {
+		if (isAdmitted(template)) writeDebug(template, 1, arg0, null, null);
+		else if (flightRecorder != null) recordFlight(template, 1, arg0, null, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholder {0}
+	 * @param arg0 first argument
+	 */
+	public void writeLog(String template, double arg0) {
+		if (isAdmitted(template)) writeDebug(template, 1, arg0, null, null);
+		else if (flightRecorder != null) recordFlight(template, 1, arg0, null, null);
+	}
+
+	/**
+	 * method that write to the log file a message template, formatted only if debug is enabled
+	 * @param template of message, with placeholder {0}
+	 * @param arg0 first argument
+	 */
+	public void writeLog(String template, boolean arg0) {
+		if (isAdmitted(template)) writeDebug(template, 1, arg0, null, null);
+		else if (flightRecorder != null) recordFlight(template, 1, arg0, null, null);
 	}
 
 	/**
@@ -155,7 +257,7 @@ public class JoggerDebug extends Jogger {
 	 * @param write to be append in out
 	 */
 	public void writeStart(String write) {
-		writeLog(MessageFormat.format("STARTING -- {0}", write));
+		writeLog("STARTING -- {0}", write);
 	}
 
 	/**
@@ -170,7 +272,7 @@ public class JoggerDebug extends Jogger {
 	 * @param write to be append in out
 	 */
 	public void writeEnd(String write) {
-		writeLog(MessageFormat.format("END -- {0}", write));
+		writeLog("END -- {0}", write);
 	}
 
 	/**
@@ -185,7 +287,7 @@ public class JoggerDebug extends Jogger {
 	 * @param write to be append in out
 	 */
 	public void writeSuccess(String write) {
-		writeLog(MessageFormat.format("SUCCESS -- {0}", write));
+		writeLog("SUCCESS -- {0}", write);
 	}
 
 	/**
@@ -200,7 +302,7 @@ public class JoggerDebug extends Jogger {
 	 * @param write to be append in out
 	 */
 	public void writeFail(String write) {
-		writeLog(MessageFormat.format("FAIL -- {0}", write));
+		writeLog("FAIL -- {0}", write);
 	}
 
 	/**
@@ -215,11 +317,128 @@ public class JoggerDebug extends Jogger {
 	 * @param write to be append in out
 	 */
 	public void writeError(String write) {
-		writeLog(MessageFormat.format("ERROR -- {0}", write));
+		writeLog("ERROR -- {0}", write);
+	}
+
+	/**
+	 * method that report the entries suppressed and close the active log file
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (suppressedReport != null) suppressedReport.cancel(false);
+			suppressedReport = null;
+		}
+		rateLimiter.report();
+		super.close();
 	}
 
 	/* ################################################################################# */
 	/* END LOG METHODS */
 	/* ################################################################################# */
 
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that get the output builder reused by the current thread */
+	private static StringBuilder getOutBuilder() {
+		StringBuilder out = OUT_BUILDER.get();
+		if (out.capacity() > MAX_KEPT_BUILDER_SIZE) {
+			out = new StringBuilder(DEFAULT_BUILDER_SIZE);
+			OUT_BUILDER.set(out);
+		}
+		out.setLength(0);
+		return out;
+	}
+
+	/* method that check if an entry must be written, the key is the template or the class of supplier */
+	private boolean isAdmitted(Object key) {
+		return debug && rateLimiter.admit(key);
+	}
+
+	/* method that start the periodic report of entries suppressed */
+	private synchronized void startSuppressedReport() {
+		if (suppressedReport == null && rateLimiter.isActive()) scheduleSuppressedReport();
+	}
+
+	/* method that schedule the report of entries suppressed, with the current period, on the executor of the tasks that write entries */
+	private void scheduleSuppressedReport() {
+		if (suppressedReport != null) suppressedReport.cancel(false);
+		suppressedReport = JoggerExecutors.logging().scheduleAtFixedRate(rateLimiter::report, suppressedReportMillis, suppressedReportMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/* method used by the rate limiter to write the entries suppressed of a template, or of all the templates over the max */
+	private void writeSuppressed(Object key, long suppressed) {
+		String source = key == null ? "the templates over the max number of limits" : key instanceof Class ? ((Class<?>) key).getName() : String.valueOf(key);
+		writeDebug("SUPPRESSED -- {0} entries of {1}", 2, suppressed, source, null);
+	}
+
+	/* method that record an entry not written on the flight recorder */
+	private void recordFlight(String template, int argCount, Object arg0, Object arg1, Object arg2) {
+		FlightRecorder recorder = flightRecorder;
+		if (recorder == null) return;
+		StringBuilder out = getOutBuilder();
+		MessageTemplate.appendTo(out, template, argCount, arg0, arg1, arg2);
+		recorder.record(LogRecord.nowEpochNanos(), Thread.currentThread().getId(), out);
+	}
+
+	/* method that format the message and write it on console and log file */
+	private void writeDebug(String template, int argCount, Object arg0, Object arg1, Object arg2) {
+		try {
+			/* if trylock failed return */
+			if (!tryLock()) return;
+			
+			try {
+				/* the binary format write the record, with the stack trace as frames */
+				if (recordFormat == RecordFormat.BINARY) {
+					writeRecord(template, argCount, arg0, arg1, arg2);
+					return;
+				}
+
+				StringBuilder out = getOutBuilder();
+				TimestampRenderer.append(out, LogRecord.nowEpochNanos(), timestampFormat);
+				if (printStackTrace) {
+					/* append message */
+					MessageTemplate.appendTo(out.append(" :: Message: "), template, argCount, arg0, arg1, arg2);
+					
+					/* append the stack trace of caller, up to the max depth */
+					CallSiteCapture.appendCallerStack(out, stackTraceDepth);
+					
+					/* append simple output */
+				} else MessageTemplate.appendTo(out.append(" :: "), template, argCount, arg0, arg1, arg2);
+				
+				/* print output, on the console thread if async console is enabled, the console need a String and the same one is written on file */
+				String text = out.append("\n").toString();
+				printConsole(text);
+				
+				/* write output on file, or hand off it to the writer thread */
+				if (!publishAsync(text)) writeLines(Collections.singletonList(text));
+			} catch (IOException | LogFileException e) {
+				e.printStackTrace();
+			} finally {
+				tryUnlock();
+			}
+		} catch (LockLogException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* method that write a debug record, printing it with the text layout */
+	private void writeRecord(String template, int argCount, Object arg0, Object arg1, Object arg2) throws IOException, LogFileException {
+		Object[] args = Arrays.copyOf(new Object[] {arg0, arg1, arg2}, argCount);
+		String[] frames = printStackTrace ? CallSiteCapture.captureCallerFrames(stackTraceDepth) : null;
+		LogRecord record = new LogRecord(LogRecord.nowEpochNanos(), LogRecord.LEVEL_DEBUG, Thread.currentThread().getId(), template, args, frames, null);
+
+		/* print output */
+		printConsole(record.toText(timestampFormat));
+
+		/* write record on file, or hand off it to the writer thread */
+		if (!publishAsync(record)) writeLines(Collections.singletonList(record));
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+
 }
@@ -1,13 +1,10 @@
 package jogger;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
-import java.text.MessageFormat;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
 
 import exception.LogFileException;
 import exception.LockLogException;
@@ -20,6 +17,11 @@ import exception.LockLogException;
 public class JoggerError extends Jogger {
 	private final static String[] LOG_DIR_ERROR_LIST = {"error"};
 	private final String PREFIX_LOG_FILE_ERROR = "log_error-";
+	private static final String FINGERPRINT_LABEL = "Fingerprint: ";
+	private static final String REPEATED_LABEL = "Repeated fingerprint: ";
+	private final ErrorDeduplicator deduplicator = new ErrorDeduplicator(60000, this::writeSummary);
+	private volatile int fingerprintFrames = 5;
+	private volatile FlightRecorder flightRecorder = null;
 
 	/* ################################################################################# */
 	/* START CONSTRUCTORS */
@@ -57,6 +59,33 @@ public class JoggerError extends Jogger {
 	/* END CONSTRUCTORS */
 	/* ################################################################################# */
 
+	/* ################################################################################# */
+	/* START GET AND SET */
+	/* ################################################################################# */
+
+	public long getDedupWindowMillis() {
+		return deduplicator.getWindowMillis();
+	}
+	public void setDedupWindowMillis(long dedupWindowMillis) {
+		deduplicator.setWindowMillis(dedupWindowMillis);
+	}
+	public FlightRecorder getFlightRecorder() {
+		return flightRecorder;
+	}
+	public void setFlightRecorder(FlightRecorder flightRecorder) {
+		this.flightRecorder = flightRecorder;
+	}
+	public int getFingerprintFrames() {
+		return fingerprintFrames;
+	}
+	public void setFingerprintFrames(int fingerprintFrames) {
+		this.fingerprintFrames = Math.max(1, fingerprintFrames);
+	}
+
+	/* ################################################################################# */
+	/* END GET AND SET */
+	/* ################################################################################# */
+
 	/* ################################################################################# */
 	/* START LOG METHODS */
 	/* ################################################################################# */
@@ -68,62 +97,140 @@ public class JoggerError extends Jogger {
 
 	/* metodo per scrivere sul file di log un'eccezione */
 	/**
-	 * method that write to the log file
+	 * method that append the exception at the end of the log file, with its fingerprint.
+	 * The trace of an exception is written once for every window, the repeats inside the window
+	 * are written as a summary with the count and the time of the first repeat.
+	 * If a flight recorder is set, its entries are dumped in background after the trace
 	 * @param write string to be written
 	 * @throws LogFileException
 	 * @throws LockLogException
 	 */
 	public void writeLog(Exception exception) throws LockLogException {
-		if (!tryLock()) return;
+		/* the repeats are only counted, without trace on the log and on the console */
+		String fingerprint = getFingerprint(exception);
+		if (!deduplicator.shouldWrite(fingerprint, exception.getClass().getName())) return;
 
-		PrintWriter pwLog = null;
+		/* the window of fingerprint start only if the trace is written */
+		boolean written = false;
 		try {
-			File fLog = getFile();
-			String post = readLogFile(fLog);
-			pwLog = new PrintWriter(fLog);
-			pwLog.append(MessageFormat.format("Date: {0} -- Error message: {1}\n\t", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME), exception.getMessage())); 
-			exception.printStackTrace(pwLog);
-			pwLog.append("\n" + post);
-			pwLog.flush();
-		} catch (FileNotFoundException | LogFileException e) {
-			e.printStackTrace();
+			if (!tryLock()) return;
+
+			/* the stack trace follow the fingerprint, it is printed also on the console */
+			StringWriter trace = new StringWriter();
+			PrintWriter pwTrace = new PrintWriter(trace);
+			exception.printStackTrace(pwTrace);
+			pwTrace.flush();
+			String stackTrace = trace.toString();
+			try {
+				writeEntry("{0}", new Object[] {exception.getMessage()}, FINGERPRINT_LABEL + fingerprint + "\n\t" + stackTrace);
+				written = true;
+			} catch (IOException | LogFileException e) {
+				e.printStackTrace();
+			} finally {
+				tryUnlock();
+				printConsoleError(stackTrace.stripTrailing());
+			}
 		} finally {
-			pwLog.close();
-			tryUnlock();
-			exception.printStackTrace();
+			deduplicator.traceWritten(fingerprint, written);
 		}
+
+		/* the debug entries before the error */
+		FlightRecorder recorder = flightRecorder;
+		if (recorder != null) JoggerExecutors.logging().execute(() -> recorder.dump("error " + exception.getClass().getName() + ", fingerprint " + fingerprint));
 	}
 
-	/* ################################################################################# */
-	/* END LOG METHODS */
-	/* ################################################################################# */
+	/**
+	 * method that get the fingerprint of an exception, made of its type, the top frames and its causes
+	 * @param exception to be fingerprinted
+	 * @return id of 16 hex digits, written with the trace of exception
+	 */
+	public String getFingerprint(Throwable exception) {
+		return ExceptionFingerprint.of(exception, fingerprintFrames);
+	}
 
-	/* metodo che legge il file log e ritorna stringa */
 	/**
-	 * method that get a string with content of log file
-	 * @param file to be read
-	 * @return string with content of log file
+	 * method that read the newest entry with the trace of an exception
+	 * @param fingerprint of exception
+	 * @return the entry, null if no trace with the fingerprint is found
 	 * @throws LogFileException
 	 */
-	private String readLogFile(File file) throws LogFileException {
-		StringBuilder textOut = new StringBuilder();
-		RandomAccessFile raf = null;
+	public String readTrace(String fingerprint) throws LogFileException {
+		String marker = "\n\t" + FINGERPRINT_LABEL + fingerprint + "\n";
+		try (JoggerErrorReader reader = newestFirst()) {
+			String entry;
+			while ((entry = reader.readEntry()) != null) if ((entry + "\n").contains(marker)) return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * method that open a reader of the entries, from the newest to the oldest
+	 * @return reader of the entries
+	 * @throws LogFileException
+	 */
+	public JoggerErrorReader newestFirst() throws LogFileException {
+		flush();
+		return new JoggerErrorReader(getSegmentWriter().listSegments());
+	}
+
+	/**
+	 * method that read the newest entries
+	 * @param maxEntries max number of entries to be read
+	 * @return list of entries, from the newest to the oldest
+	 * @throws LogFileException
+	 */
+	public List<String> readNewestEntries(int maxEntries) throws LogFileException {
+		try (JoggerErrorReader reader = newestFirst()) {
+			return reader.readEntries(maxEntries);
+		}
+	}
+
+	/**
+	 * method that write the summaries of the repeats not yet written and close the active log file
+	 */
+	@Override
+	public void close() {
+		deduplicator.flush();
+		super.close();
+	}
+
+	/* ################################################################################# */
+	/* END LOG METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that write an entry, as record with the binary format or rendered as text */
+	private void writeEntry(String template, Object[] args, String detail) throws IOException, LogFileException {
+		LogRecord record = new LogRecord(LogRecord.nowEpochNanos(), LogRecord.LEVEL_ERROR, Thread.currentThread().getId(), template, args, null, detail);
+		Object entry = recordFormat == RecordFormat.BINARY ? record : record.toText(timestampFormat);
+
+		/* append the entry, or hand off it to the writer thread */
+		if (!publishAsync(entry)) writeLines(Collections.singletonList(entry));
+	}
+
+	/* method used by the deduplicator to write the repeats of an exception */
+	private void writeSummary(String fingerprint, String type, long repeats, long sinceMillis) {
 		try {
-			raf = new RandomAccessFile(file, "r");
-			raf.seek(0);
-			while(raf.getFilePointer() < raf.length()) textOut.append(raf.readLine().concat(raf.getFilePointer() == raf.length()-1 ? "" : "\n"));
-		} catch (IOException e) {
-			try {
-				raf.close();
-			} catch (IOException e1) {
-			}
-			throw new LogFileException(MessageFormat.format("Unable to work on file log.\nMessage error: {0}", e.getMessage()));
+			if (!tryLock()) return;
+		} catch (LockLogException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		try {
+			String since = TimestampRenderer.format(sinceMillis * 1_000_000L, timestampFormat);
+			writeEntry("{0}: seen {1} more times since {2}", new Object[] {type, repeats, since}, REPEATED_LABEL + fingerprint + "\n");
+		} catch (IOException | LogFileException e) {
+			e.printStackTrace();
 		} finally {
-			try {
-				raf.close();
-			} catch (IOException e) {
-			}
+			tryUnlock();
 		}
-		return textOut.toString();
 	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
 }
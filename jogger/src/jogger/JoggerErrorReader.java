@@ -0,0 +1,111 @@
+package jogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import exception.LogFileException;
+
+/**
+ * This class read the entries of the error logs from the newest to the oldest
+ * @author Andrea Serra
+ *
+ */
+public class JoggerErrorReader implements Closeable {
+	private static final String ENTRY_START = "Date: ";
+	private final List<File> segments;
+	private final ArrayDeque<String> entryLines = new ArrayDeque<String>();
+	private ReverseLineReader reader = null;
+	private int nextSegment = 0;
+
+	/**
+	 * constructor that set the segments to be read
+	 * @param segments sorted from the oldest to the newest
+	 */
+	JoggerErrorReader(List<File> segments) {
+		this.segments = new ArrayList<File>(segments);
+		Collections.reverse(this.segments);
+	}
+
+	/**
+	 * method that read the previous entry
+	 * @return the entry, null if there are no more entries
+	 * @throws LogFileException
+	 */
+	public String readEntry() throws LogFileException {
+		do {
+			entryLines.clear();
+			String line;
+			while ((line = readLine()) != null) {
+				entryLines.addFirst(line);
+				if (line.startsWith(ENTRY_START)) break;
+			}
+
+			/* remove the blank lines between the entries */
+			while (!entryLines.isEmpty() && entryLines.peekLast().isBlank()) entryLines.removeLast();
+			if (!entryLines.isEmpty()) return String.join("\n", entryLines);
+		} while (reader != null || nextSegment < segments.size());
+
+		return null;
+	}
+
+	/**
+	 * method that read the newest entries
+	 * @param maxEntries max number of entries to be read
+	 * @return list of entries, from the newest to the oldest
+	 * @throws LogFileException
+	 */
+	public List<String> readEntries(int maxEntries) throws LogFileException {
+		ArrayList<String> entries = new ArrayList<String>();
+		String entry;
+		while (entries.size() < maxEntries && (entry = readEntry()) != null) entries.add(entry);
+		return entries;
+	}
+
+	@Override
+	public void close() {
+		closeReader();
+		nextSegment = segments.size();
+	}
+
+	/* method that read the previous line, moving to the previous segment if needed */
+	private String readLine() throws LogFileException {
+		while (true) {
+			if (reader == null) {
+				if (nextSegment >= segments.size()) return null;
+				File segment = segments.get(nextSegment++);
+				try {
+					reader = new ReverseLineReader(segment);
+				} catch (IOException e) {
+					throw new LogFileException(MessageFormat.format("Unable to read log file ''{0}''.\nError message: {1}", segment.getPath(), e.getMessage()));
+				}
+			}
+
+			try {
+				String line = reader.readLine();
+				if (line != null) return line;
+			} catch (IOException e) {
+				throw new LogFileException(e.getMessage(), e);
+			}
+
+			/* the segment is ended, an entry never continue on another segment */
+			closeReader();
+			if (!entryLines.isEmpty()) return null;
+		}
+	}
+
+	/* method that close the reader of current segment */
+	private void closeReader() {
+		if (reader == null) return;
+		try {
+			reader.close();
+		} catch (IOException e) {
+		}
+		reader = null;
+	}
+}
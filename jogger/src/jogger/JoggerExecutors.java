@@ -0,0 +1,76 @@
+package jogger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * This class hold the executor shared by the background tasks of all the loggers
+ * @author Andrea Serra
+ *
+ */
+final class JoggerExecutors {
+	private static volatile Thread backgroundThread = null;
+
+	private JoggerExecutors() {
+	}
+
+	/* holder loaded on first use, normal priority because the writers can wait for its tasks */
+	private static final class Holder {
+		private static final ScheduledExecutorService BACKGROUND = newExecutor("jogger-background", Thread.NORM_PRIORITY, thread -> backgroundThread = thread);
+	}
+
+	/* holder loaded on first use */
+	private static final class LoggingHolder {
+		private static final ScheduledExecutorService LOGGING = newExecutor("jogger-logging", Thread.NORM_PRIORITY, thread -> {});
+	}
+
+	/* holder loaded on first use */
+	private static final class MaintenanceHolder {
+		private static final ScheduledExecutorService MAINTENANCE = newExecutor("jogger-maintenance", Thread.MIN_PRIORITY, thread -> {});
+	}
+
+	/**
+	 * method that get the executor for the short background tasks of the writers, like syncs and segment mapping
+	 * @return background executor
+	 */
+	static ScheduledExecutorService background() {
+		return Holder.BACKGROUND;
+	}
+
+	/**
+	 * method that get the executor for the tasks that write entries on the logs, like summaries and dumps.
+	 * They can wait the segments prepared by the background executor, so they never run on it
+	 * @return logging executor
+	 */
+	static ScheduledExecutorService logging() {
+		return LoggingHolder.LOGGING;
+	}
+
+	/**
+	 * method that check if the current thread is the thread of background executor
+	 * @return true if the caller run on the background executor
+	 */
+	static boolean isBackgroundThread() {
+		return Thread.currentThread() == backgroundThread;
+	}
+
+	/**
+	 * method that get the low priority executor for the long tasks, like compression of segments
+	 * @return maintenance executor
+	 */
+	static ScheduledExecutorService maintenance() {
+		return MaintenanceHolder.MAINTENANCE;
+	}
+
+	/* method that create a single thread executor with daemon thread */
+	private static ScheduledExecutorService newExecutor(String name, int priority, Consumer<Thread> created) {
+		return Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			thread.setPriority(priority);
+			created.accept(thread);
+			return thread;
+		});
+	}
+}
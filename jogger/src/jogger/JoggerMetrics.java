@@ -0,0 +1,177 @@
+package jogger;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class count the activity of a log, it is shared by all the loggers of the same log files.
+ * The counters are striped and the latencies are recorded without allocations, so the writers are never slowed down.
+ * The MXBean is registered and unregistered on the background executor
+ * @author Andrea Serra
+ *
+ */
+final class JoggerMetrics implements LogMetricsMXBean {
+	private static final String DOMAIN = "jogger";
+	private final LongAdder linesWritten = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+	private final LongAdder rotations = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder droppedEntries = new LongAdder();
+	private final CopyOnWriteArrayList<BufferedEntryWriter> queues = new CopyOnWriteArrayList<BufferedEntryWriter>();
+	private final ObjectName objectName;
+
+	/* PACKAGE */
+	final LatencyHistogram writeLatency = new LatencyHistogram();
+	final LatencyHistogram lockWait = new LatencyHistogram();
+
+	/**
+	 * constructor that set the name of MXBean
+	 * @param key of log target, made of log directory, prefix, log name and file type
+	 */
+	JoggerMetrics(List<String> key) {
+		ObjectName name = null;
+		try {
+			String path = new File(key.get(0), key.get(1) + key.get(2)).getPath() + key.get(3);
+			name = new ObjectName(DOMAIN + ":type=Log,name=" + ObjectName.quote(path));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		this.objectName = name;
+	}
+
+	/* ################################################################################# */
+	/* START RECORD METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that record the entries written on a segment
+	 * @param lines number of entries
+	 * @param bytes number of bytes
+	 */
+	void written(int lines, long bytes) {
+		linesWritten.add(lines);
+		bytesWritten.add(bytes);
+	}
+
+	void rotated() {
+		rotations.increment();
+	}
+	void failed() {
+		failures.increment();
+	}
+	void dropped(long entries) {
+		droppedEntries.add(entries);
+	}
+	void addQueue(BufferedEntryWriter writer) {
+		queues.add(writer);
+	}
+	void removeQueue(BufferedEntryWriter writer) {
+		queues.remove(writer);
+	}
+
+	/* ################################################################################# */
+	/* END RECORD METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START MXBEAN METHODS */
+	/* ################################################################################# */
+
+	@Override
+	public long getLinesWritten() {
+		return linesWritten.sum();
+	}
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+	@Override
+	public long getWrites() {
+		return LatencyHistogram.totalCount(writeLatency.copyCounts());
+	}
+	@Override
+	public long getRotations() {
+		return rotations.sum();
+	}
+	@Override
+	public long getFailures() {
+		return failures.sum();
+	}
+	@Override
+	public long getDroppedEntries() {
+		return droppedEntries.sum();
+	}
+	@Override
+	public long getQueueDepth() {
+		long depth = 0;
+		for (BufferedEntryWriter queue : queues) depth += queue.getQueueDepth();
+		return depth;
+	}
+	@Override
+	public long getLockWaitTotalNanos() {
+		return lockWait.getSum();
+	}
+	@Override
+	public long getLockWaitMaxNanos() {
+		return lockWait.getMax();
+	}
+	@Override
+	public long getWriteLatencyP50Nanos() {
+		return LatencyHistogram.valueAtPercentile(writeLatency.copyCounts(), writeLatency.getMax(), 50);
+	}
+	@Override
+	public long getWriteLatencyP99Nanos() {
+		return LatencyHistogram.valueAtPercentile(writeLatency.copyCounts(), writeLatency.getMax(), 99);
+	}
+	@Override
+	public long getWriteLatencyP999Nanos() {
+		return LatencyHistogram.valueAtPercentile(writeLatency.copyCounts(), writeLatency.getMax(), 99.9);
+	}
+	@Override
+	public long getWriteLatencyMaxNanos() {
+		return writeLatency.getMax();
+	}
+
+	/* ################################################################################# */
+	/* END MXBEAN METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that register the MXBean in background, the platform server is slow to start
+	 */
+	void register() {
+		if (objectName == null) return;
+		JoggerExecutors.background().execute(() -> {
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				/* left by a target of the same log files not yet unregistered */
+				if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+				server.registerMBean(this, objectName);
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * method that unregister the MXBean in background, before a new target of the same log files register it
+	 */
+	void unregister() {
+		if (objectName == null) return;
+		JoggerExecutors.background().execute(() -> {
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+}
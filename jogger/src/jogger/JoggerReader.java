@@ -0,0 +1,118 @@
+package jogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class read the log segments, decompressing them transparently
+ * @author Andrea Serra
+ *
+ */
+public final class JoggerReader {
+	private static final int BUFFER_SIZE = 8192;
+
+	private JoggerReader() {
+	}
+
+	/**
+	 * method that open a segment as stream of bytes, decompressed if needed
+	 * @param segment to be read
+	 * @return stream of segment
+	 * @throws IOException
+	 */
+	public static InputStream openInputStream(File segment) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(segment), BUFFER_SIZE);
+		try {
+			switch (Compression.fromFileName(segment.getName())) {
+			case GZIP:
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case LZF:
+				return new LzfCodec.LzfInputStream(in);
+			default:
+				return in;
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * method that open a segment as stream of bytes from an offset of the uncompressed bytes
+	 * @param segment to be read
+	 * @param offset of first byte read
+	 * @return stream of segment
+	 * @throws IOException
+	 */
+	static InputStream openInputStream(File segment, long offset) throws IOException {
+		/* the uncompressed segments seek, the compressed ones are decompressed up to the offset */
+		if (Compression.fromFileName(segment.getName()) == Compression.NONE) {
+			FileInputStream fin = new FileInputStream(segment);
+			try {
+				fin.getChannel().position(offset);
+			} catch (IOException e) {
+				fin.close();
+				throw e;
+			}
+			return new BufferedInputStream(fin, BUFFER_SIZE);
+		}
+
+		InputStream in = openInputStream(segment);
+		try {
+			skipFully(in, offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return in;
+	}
+
+	/**
+	 * method that skip the bytes of a stream, up to the end of stream
+	 * @param in stream
+	 * @param length of bytes to be skipped
+	 * @return bytes skipped
+	 * @throws IOException
+	 */
+	static long skipFully(InputStream in, long length) throws IOException {
+		long skipped = 0;
+		while (skipped < length) {
+			long n = in.skip(length - skipped);
+			if (n <= 0) {
+				if (in.read() < 0) break;
+				n = 1;
+			}
+			skipped += n;
+		}
+		return skipped;
+	}
+
+	/**
+	 * method that open a segment as reader of UTF-8 lines, decompressed if needed
+	 * @param segment to be read
+	 * @return reader of segment
+	 * @throws IOException
+	 */
+	public static BufferedReader openReader(File segment) throws IOException {
+		return new BufferedReader(new InputStreamReader(openInputStream(segment), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * method that read all the bytes of a segment, decompressed if needed
+	 * @param segment to be read
+	 * @return bytes of segment
+	 * @throws IOException
+	 */
+	public static byte[] readAllBytes(File segment) throws IOException {
+		try (InputStream in = openInputStream(segment)) {
+			return in.readAllBytes();
+		}
+	}
+}
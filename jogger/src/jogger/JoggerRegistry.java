@@ -0,0 +1,100 @@
+package jogger;
+
+import java.io.File;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keep the process wide registry of the log targets,
+ * so that all the loggers of the same log files share one writer and one lock
+ * @author Andrea Serra
+ *
+ */
+final class JoggerRegistry {
+	private static final int MAX_STATIC_LOGGERS = 64;
+	private static final HashMap<List<String>, LogTarget> TARGETS = new HashMap<List<String>, LogTarget>();
+	/* the least recently used logger is dropped, its target is released when it is collected */
+	private static final LinkedHashMap<List<Object>, Jogger> STATIC_LOGGERS = new LinkedHashMap<List<Object>, Jogger>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, Jogger> eldest) {
+			return size() > MAX_STATIC_LOGGERS;
+		}
+	};
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private JoggerRegistry() {
+	}
+
+	/**
+	 * method that get the target of the log files and take a reference on it
+	 * @param logDirPath where the log files are located
+	 * @param prefixLogFile of log files
+	 * @param logName of log files
+	 * @param fileType of log files
+	 * @return shared target
+	 */
+	static synchronized LogTarget acquire(String logDirPath, String prefixLogFile, String logName, String fileType) {
+		List<String> key = Arrays.asList(new File(logDirPath).getAbsolutePath(), prefixLogFile, logName, fileType);
+		LogTarget target = TARGETS.get(key);
+		if (target == null) {
+			target = new LogTarget(key);
+			TARGETS.put(key, target);
+			target.metrics.register();
+		}
+		target.references++;
+		return target;
+	}
+
+	/**
+	 * method that release the reference of a logger on the target when the logger is collected without close
+	 * @param logger that hold the reference
+	 * @param target acquired by the logger
+	 * @return action that release the reference, once, to be run by the close of logger
+	 */
+	static Cleaner.Cleanable releaseOnCollect(Object logger, LogTarget target) {
+		return CLEANER.register(logger, () -> release(target));
+	}
+
+	/**
+	 * method that release a reference on the target, closing it if no more used
+	 * @param target to be released
+	 */
+	static synchronized void release(LogTarget target) {
+		if (--target.references > 0) return;
+		TARGETS.remove(target.key);
+		target.metrics.unregister();
+		target.resetWriter();
+	}
+
+	/**
+	 * method that get the logger shared by the static methods of Jogger, one for every log file like its target
+	 * @param logName of log file
+	 * @param maxSizeBytes of log file, null to keep the current one
+	 * @param splitLogDir where log file is located
+	 * @return shared logger
+	 */
+	static Jogger getStaticLogger(String logName, Integer maxSizeBytes, String... splitLogDir) {
+		String[] dirs = splitLogDir.clone();
+		List<Object> key = Arrays.asList(logName, Arrays.asList(dirs));
+		Jogger logger;
+		synchronized (STATIC_LOGGERS) {
+			logger = STATIC_LOGGERS.get(key);
+			if (logger == null) {
+				logger = new Jogger(logName, dirs);
+				STATIC_LOGGERS.put(key, logger);
+			}
+		}
+		/* the max size is of the shared writer, the last one requested is used also if the writer is opened by an evicted logger */
+		if (maxSizeBytes != null) {
+			logger.getTarget();
+			logger.setMaxSizeBytes(maxSizeBytes);
+		}
+		return logger;
+	}
+}
@@ -0,0 +1,31 @@
+package jogger;
+
+/**
+ * This class report the problems of the loggers themselves on the standard error,
+ * they can not be written on the log files they are about
+ * @author Andrea Serra
+ *
+ */
+final class JoggerStatus {
+	private static final String PREFIX = "jogger: ";
+
+	private JoggerStatus() {
+	}
+
+	/**
+	 * method that report a setting or a state that is not as the user expect
+	 * @param message of warning
+	 */
+	static void warn(String message) {
+		System.err.println(PREFIX + message);
+	}
+
+	/**
+	 * method that report a failure that is handled by the logger, like a dropped batch
+	 * @param message of error
+	 * @param cause of error
+	 */
+	static void error(String message, Throwable cause) {
+		System.err.println(PREFIX + message + ": " + cause);
+	}
+}
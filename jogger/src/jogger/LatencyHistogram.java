@@ -0,0 +1,100 @@
+package jogger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a concurrent histogram of latencies with log-linear buckets, like HdrHistogram.
+ * The values under 64 have their own bucket, the others are grouped with a relative error under 1/32.
+ * The buckets are preallocated, so the record of a value never allocate
+ * @author Andrea Serra
+ *
+ */
+final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int MANTISSA_BITS = SUB_BUCKET_BITS - 1;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MANTISSA_MASK = (1 << MANTISSA_BITS) - 1;
+	/* the highest exponent of a positive long is 62 */
+	static final int BUCKETS = SUB_BUCKETS + ((63 - SUB_BUCKET_BITS) << MANTISSA_BITS);
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * method that record a value
+	 * @param value to be recorded, the negative values are recorded as 0
+	 */
+	void record(long value) {
+		if (value < 0) value = 0;
+		counts.incrementAndGet(indexOf(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * method that copy the counts of buckets
+	 * @return counts of buckets
+	 */
+	long[] copyCounts() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+		return copy;
+	}
+
+	long getSum() {
+		return sum.sum();
+	}
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * method that get the value at a percentile of the counts copied
+	 * @param counts of buckets
+	 * @param max value recorded
+	 * @param percentile from 0 to 100
+	 * @return highest value of the bucket at the percentile, 0 if no value is recorded
+	 */
+	static long valueAtPercentile(long[] counts, long max, double percentile) {
+		long total = totalCount(counts);
+		if (total == 0) return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(highestValueOf(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * method that count the values of the counts copied
+	 * @param counts of buckets
+	 * @return number of values
+	 */
+	static long totalCount(long[] counts) {
+		long total = 0;
+		for (long count : counts) total += count;
+		return total;
+	}
+
+	/* method that get the bucket of a value */
+	private static int indexOf(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int mantissa = (int) (value >>> (exponent - MANTISSA_BITS)) & MANTISSA_MASK;
+		return SUB_BUCKETS + ((exponent - SUB_BUCKET_BITS) << MANTISSA_BITS) + mantissa;
+	}
+
+	/* method that get the highest value of a bucket */
+	private static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int exponent = ((index - SUB_BUCKETS) >> MANTISSA_BITS) + SUB_BUCKET_BITS;
+		long mantissa = (index - SUB_BUCKETS) & MANTISSA_MASK;
+		long width = 1L << (exponent - MANTISSA_BITS);
+		return ((1L << MANTISSA_BITS) | mantissa) * width + width - 1;
+	}
+}
@@ -0,0 +1,299 @@
+package jogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import exception.LogFileException;
+
+/**
+ * This class publish the lines written on a log after its creation, following the rotation of segments.
+ * Every subscriber is served by a daemon thread that read the segments from the last offset,
+ * only while the subscriber has demand, so a slow subscriber never make it buffer more than a chunk.
+ * The debug entries are published line by line, the records of binary segments one by one
+ * with the text layout
+ * @author Andrea Serra
+ *
+ */
+public final class LogFollower implements Flow.Publisher<String> {
+	private static final int CHUNK_SIZE = 8192;
+	/* the poll wait grow while the log is idle */
+	private static final long MIN_POLL_NANOS = 100_000L;
+	private static final long MAX_POLL_NANOS = 50_000_000L;
+	private final SegmentWriter writer;
+	private final String name;
+	private final File startFile;
+	private final long startOffset;
+
+	/**
+	 * constructor that set the position from where the lines are published
+	 * @param writer of segments followed
+	 * @param name of log, used for the name of threads
+	 * @throws LogFileException
+	 */
+	LogFollower(SegmentWriter writer, String name) throws LogFileException {
+		this.writer = writer;
+		this.name = name;
+		Map.Entry<File, Long> end = writer.getActiveEnd();
+		this.startFile = end.getKey();
+		this.startOffset = end.getValue();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super String> subscriber) {
+		Objects.requireNonNull(subscriber);
+		FollowSubscription subscription = new FollowSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscription.thread.start();
+	}
+
+	/* subscription that read the segments on its own thread */
+	private final class FollowSubscription implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super String> subscriber;
+		private final Thread thread;
+		private final AtomicLong demand = new AtomicLong();
+		private final ArrayDeque<String> pending = new ArrayDeque<String>();
+		private volatile boolean cancelled = false;
+		private volatile boolean invalidRequest = false;
+
+		/* state of the segment followed */
+		private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		private long sequence;
+		private long offset;
+		private boolean binary;
+		private BinaryRecordDecoder decoder;
+		private FileChannel channel;
+		private InputStream compressed;
+		private boolean rotated = false;
+		private long nextSequence = -1;
+
+		private FollowSubscription(Flow.Subscriber<? super String> subscriber) {
+			this.subscriber = subscriber;
+			this.thread = new Thread(this, "jogger-follow-" + name);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) invalidRequest = true;
+			else demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+			LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void run() {
+			try {
+				sequence = writer.parseSequence(startFile.getName());
+				binary = BinaryRecordDecoder.isBinarySegment(startFile);
+				openSegment(startFile, startOffset);
+
+				long pollNanos = MIN_POLL_NANOS;
+				while (!cancelled) {
+					if (invalidRequest) {
+						cancelled = true;
+						subscriber.onError(new IllegalArgumentException("The request must be positive"));
+					} else if (demand.get() == 0) LockSupport.park(this);
+					else if (!pending.isEmpty()) deliver();
+					else if (readChunk()) pollNanos = MIN_POLL_NANOS;
+					else if (rotated) {
+						/* the previous segment is read until its end, then the next one is followed */
+						pollNanos = MIN_POLL_NANOS;
+						rotated = false;
+						if (chunk.position() > 0 && !binary) pending.add(decodeLine(0, chunk.position()));
+						closeSegment();
+						sequence = nextSequence;
+						openSegment(findSegment(sequence), 0);
+					} else if (nextSegmentStarted(pollNanos == MAX_POLL_NANOS)) rotated = true;
+					else {
+						LockSupport.parkNanos(this, pollNanos);
+						pollNanos = Math.min(pollNanos << 1, MAX_POLL_NANOS);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				if (!cancelled) {
+					cancelled = true;
+					subscriber.onError(e);
+				}
+			} finally {
+				closeSegment();
+			}
+		}
+
+		/* method that publish the pending lines, up to the demand */
+		private void deliver() {
+			while (!cancelled && !pending.isEmpty() && demand.get() > 0) {
+				if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+				subscriber.onNext(pending.poll());
+			}
+		}
+
+		/* method that read the bytes written after the offset, true if some bytes are read */
+		private boolean readChunk() throws IOException {
+			if (!chunk.hasRemaining()) chunk = ByteBuffer.allocate(chunk.capacity() << 1).put(chunk.flip());
+
+			int read;
+			if (channel != null) read = channel.read(chunk, offset + chunk.position());
+			else {
+				read = compressed.read(chunk.array(), chunk.position(), chunk.remaining());
+				if (read > 0) chunk.position(chunk.position() + read);
+			}
+			if (read <= 0) return false;
+
+			int before = chunk.position() - read;
+			int consumed = binary ? parseRecords() : parseLines();
+			int kept = chunk.position();
+			chunk.flip().position(consumed);
+			chunk.compact();
+			offset += consumed;
+			/* the padding of mapped segments is not written yet, it will be read again */
+			return consumed > 0 || kept > before;
+		}
+
+		/* method that split the complete lines of chunk, return the bytes consumed */
+		private int parseLines() {
+			byte[] bytes = chunk.array();
+			int end = chunk.position();
+			int start = 0;
+			for (int i = 0; i < end; i++) {
+				if (i == start && bytes[i] == 0) {
+					chunk.position(start);
+					break;
+				}
+				if (bytes[i] != '\n') continue;
+				pending.add(decodeLine(start, i));
+				start = i + 1;
+			}
+			return start;
+		}
+
+		/* method that decode the complete records of chunk, return the bytes consumed */
+		private int parseRecords() throws IOException {
+			int end = chunk.position();
+			int start = 0;
+			while (end - start >= 4) {
+				int length = chunk.getInt(start);
+				if (length <= 0) {
+					chunk.position(start);
+					break;
+				}
+				if (end - start - 4 < length) break;
+				LogRecord record = decoder.decode(ByteBuffer.wrap(chunk.array(), start + 4, length).slice());
+				if (record != null) pending.add(trimNewLine(record.toText()));
+				start += 4 + length;
+			}
+			return start;
+		}
+
+		/* method that decode a line of chunk */
+		private String decodeLine(int start, int end) {
+			if (end > start && chunk.get(end - 1) == '\r') end--;
+			return new String(chunk.array(), start, end - start, StandardCharsets.UTF_8);
+		}
+
+		/* method that check if the writer has started the next segment, so the followed one is complete */
+		private boolean nextSegmentStarted(boolean idle) throws IOException {
+			nextSequence = findNextSequence(idle);
+			if (nextSequence < 0) return false;
+			File next = writer.getSegmentFile(nextSequence);
+			if (!next.exists()) return true;
+
+			/* the binary segments start with the header, they are written only with the channel */
+			if (binary) return next.length() > BinarySegmentWriter.HEADER_LENGTH;
+
+			/* the mapped writer prepare the next segment before the rotation, it is started on first write */
+			try (FileChannel nextChannel = FileChannel.open(next.toPath(), StandardOpenOption.READ)) {
+				ByteBuffer first = ByteBuffer.allocate(1);
+				nextChannel.read(first, 0);
+				return first.position() > 0 && first.get(0) != 0;
+			}
+		}
+
+		/* method that find the segment after the followed one, the directory is listed only when idle */
+		private long findNextSequence(boolean idle) throws IOException {
+			/* next of same period, or first of the current hour or day for the time based rotations */
+			long now = System.currentTimeMillis();
+			long[] candidates = {sequence + 1, RotationPolicy.HOURLY.getFirstSequence(now), RotationPolicy.DAILY.getFirstSequence(now)};
+			for (long candidate : candidates) if (candidate > sequence && findSegment(candidate).exists()) return candidate;
+			if (!idle) return -1;
+
+			/* a follower late of more periods */
+			try {
+				for (File segment : writer.listSegments()) {
+					long seq = writer.parseSequence(segment.getName());
+					if (seq > sequence) return seq;
+				}
+			} catch (LogFileException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			return -1;
+		}
+
+		/* method that get a segment, compressed if the uncompressed one is missing */
+		private File findSegment(long seq) {
+			File segment = writer.getSegmentFile(seq);
+			if (segment.exists()) return segment;
+			for (Compression compression : Compression.values()) {
+				File compressedSegment = new File(segment.getPath() + compression.getSuffix());
+				if (compressedSegment.exists()) return compressedSegment;
+			}
+			return segment;
+		}
+
+		/* method that open a segment from an offset */
+		private void openSegment(File segment, long from) throws IOException {
+			if (!segment.exists()) segment = findSegment(sequence);
+			chunk.clear();
+			offset = from;
+
+			if (binary) {
+				if (offset > BinarySegmentWriter.HEADER_LENGTH) {
+					/* the dictionary written before the offset is needed */
+					decoder = new BinaryRecordDecoder(JoggerReader.openInputStream(segment));
+					decoder.skipTo(offset);
+					decoder.close();
+				} else {
+					decoder = BinaryRecordDecoder.forRecords();
+					offset = BinarySegmentWriter.HEADER_LENGTH;
+				}
+			}
+
+			if (Compression.fromFileName(segment.getName()) == Compression.NONE) channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ);
+			else compressed = JoggerReader.openInputStream(segment, offset);
+		}
+
+		/* method that close the segment followed */
+		private void closeSegment() {
+			try {
+				if (channel != null) channel.close();
+				if (compressed != null) compressed.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+			compressed = null;
+		}
+
+		/* method that remove the new line at the end of a record */
+		private String trimNewLine(String text) {
+			int end = text.length();
+			while (end > 0 && text.charAt(end - 1) == '\n') end--;
+			return text.substring(0, end);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package jogger;
+
+import java.text.MessageFormat;
+
+/**
+ * This class is an immutable snapshot of the metrics of a log,
+ * shared by all the loggers of the same log files
+ * @author Andrea Serra
+ *
+ */
+public final class LogMetrics {
+	private final long linesWritten;
+	private final long bytesWritten;
+	private final long rotations;
+	private final long failures;
+	private final long droppedEntries;
+	private final long queueDepth;
+	private final long writeLatencySum;
+	private final long writeLatencyMax;
+	private final long[] writeLatencyCounts;
+	private final long lockWaitSum;
+	private final long lockWaitMax;
+	private final long[] lockWaitCounts;
+
+	/**
+	 * constructor that copy the metrics
+	 * @param metrics to be copied
+	 */
+	LogMetrics(JoggerMetrics metrics) {
+		this.linesWritten = metrics.getLinesWritten();
+		this.bytesWritten = metrics.getBytesWritten();
+		this.rotations = metrics.getRotations();
+		this.failures = metrics.getFailures();
+		this.droppedEntries = metrics.getDroppedEntries();
+		this.queueDepth = metrics.getQueueDepth();
+		this.writeLatencySum = metrics.writeLatency.getSum();
+		this.writeLatencyMax = metrics.writeLatency.getMax();
+		this.writeLatencyCounts = metrics.writeLatency.copyCounts();
+		this.lockWaitSum = metrics.lockWait.getSum();
+		this.lockWaitMax = metrics.lockWait.getMax();
+		this.lockWaitCounts = metrics.lockWait.copyCounts();
+	}
+
+	/* ################################################################################# */
+	/* START GET */
+	/* ################################################################################# */
+
+	public long getLinesWritten() {
+		return linesWritten;
+	}
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+	public long getRotations() {
+		return rotations;
+	}
+	public long getFailures() {
+		return failures;
+	}
+	public long getDroppedEntries() {
+		return droppedEntries;
+	}
+	public long getQueueDepth() {
+		return queueDepth;
+	}
+	public long getWrites() {
+		return LatencyHistogram.totalCount(writeLatencyCounts);
+	}
+	public long getWriteLatencyMaxNanos() {
+		return writeLatencyMax;
+	}
+	public long getLockWaits() {
+		return LatencyHistogram.totalCount(lockWaitCounts);
+	}
+	public long getLockWaitTotalNanos() {
+		return lockWaitSum;
+	}
+	public long getLockWaitMaxNanos() {
+		return lockWaitMax;
+	}
+
+	/* ################################################################################# */
+	/* END GET */
+	/* ################################################################################# */
+
+	/**
+	 * method that get the mean latency of writes
+	 * @return nanoseconds, 0 if no write is done
+	 */
+	public long getWriteLatencyMeanNanos() {
+		long writes = getWrites();
+		return writes == 0 ? 0 : writeLatencySum / writes;
+	}
+
+	/**
+	 * method that get a percentile of latency of writes, with a relative error under 1/32
+	 * @param percentile from 0 to 100, like 99.9
+	 * @return nanoseconds, 0 if no write is done
+	 */
+	public long getWriteLatencyNanos(double percentile) {
+		return LatencyHistogram.valueAtPercentile(writeLatencyCounts, writeLatencyMax, percentile);
+	}
+
+	/**
+	 * method that get a percentile of the waits for the lock, with a relative error under 1/32
+	 * @param percentile from 0 to 100, like 99.9
+	 * @return nanoseconds, 0 if the lock is never taken
+	 */
+	public long getLockWaitNanos(double percentile) {
+		return LatencyHistogram.valueAtPercentile(lockWaitCounts, lockWaitMax, percentile);
+	}
+
+	@Override
+	public String toString() {
+		return MessageFormat.format("lines={0,number,#} bytes={1,number,#} writes={2,number,#} rotations={3,number,#} failures={4,number,#} dropped={5,number,#} queued={6,number,#} "
+				+ "latency(ns) p50={7,number,#} p99={8,number,#} p99.9={9,number,#} max={10,number,#} lockWait(ns) total={11,number,#} max={12,number,#}",
+				linesWritten, bytesWritten, getWrites(), rotations, failures, droppedEntries, queueDepth,
+				getWriteLatencyNanos(50), getWriteLatencyNanos(99), getWriteLatencyNanos(99.9), writeLatencyMax, lockWaitSum, lockWaitMax);
+	}
+}
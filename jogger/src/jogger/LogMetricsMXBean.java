@@ -0,0 +1,88 @@
+package jogger;
+
+/**
+ * Interface of the MXBean registered for every log, with name jogger:type=Log,name=&lt;path of segments&gt;.
+ * The counters are shared by all the loggers of the same log files and start from the first logger opened
+ * @author Andrea Serra
+ *
+ */
+public interface LogMetricsMXBean {
+
+	/**
+	 * method that get the entries written on the segments
+	 * @return number of entries
+	 */
+	long getLinesWritten();
+
+	/**
+	 * method that get the bytes written on the segments
+	 * @return number of bytes
+	 */
+	long getBytesWritten();
+
+	/**
+	 * method that get the calls that wrote entries, a batch of async mode is one call
+	 * @return number of writes
+	 */
+	long getWrites();
+
+	/**
+	 * method that get the rotations of segments
+	 * @return number of rotations
+	 */
+	long getRotations();
+
+	/**
+	 * method that get the writes failed, for errors of the files or timeout of the lock
+	 * @return number of failures
+	 */
+	long getFailures();
+
+	/**
+	 * method that get the entries dropped by the overflow policy or not written by the writer thread of async mode
+	 * @return number of entries dropped
+	 */
+	long getDroppedEntries();
+
+	/**
+	 * method that get the entries queued in async mode and not yet written
+	 * @return number of entries queued
+	 */
+	long getQueueDepth();
+
+	/**
+	 * method that get the time waited for the lock, when the lock is enabled
+	 * @return nanoseconds waited
+	 */
+	long getLockWaitTotalNanos();
+
+	/**
+	 * method that get the longest wait for the lock
+	 * @return nanoseconds waited
+	 */
+	long getLockWaitMaxNanos();
+
+	/**
+	 * method that get the median latency of writes
+	 * @return nanoseconds
+	 */
+	long getWriteLatencyP50Nanos();
+
+	/**
+	 * method that get the 99th percentile of latency of writes
+	 * @return nanoseconds
+	 */
+	long getWriteLatencyP99Nanos();
+
+	/**
+	 * method that get the 99.9th percentile of latency of writes
+	 * @return nanoseconds
+	 */
+	long getWriteLatencyP999Nanos();
+
+	/**
+	 * method that get the longest write
+	 * @return nanoseconds
+	 */
+	long getWriteLatencyMaxNanos();
+}
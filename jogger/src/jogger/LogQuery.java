@@ -0,0 +1,106 @@
+package jogger;
+
+import java.time.Instant;
+
+/**
+ * This class is a query of the log entries written in a range of time,
+ * optionally filtered by text and level
+ * @author Andrea Serra
+ *
+ */
+public class LogQuery {
+	private final Instant from;
+	private final Instant to;
+	private String contains = null;
+	private Byte level = null;
+	private int maxResults = Integer.MAX_VALUE;
+
+	/**
+	 * constructor that set the range of time
+	 * @param from start of range, inclusive
+	 * @param to end of range, inclusive
+	 */
+	public LogQuery(Instant from, Instant to) {
+		if (from.isAfter(to)) throw new IllegalArgumentException("The start of range is after the end");
+		this.from = from;
+		this.to = to;
+	}
+
+	/* ################################################################################# */
+	/* START GET AND SET */
+	/* ################################################################################# */
+
+	public Instant getFrom() {
+		return from;
+	}
+	public Instant getTo() {
+		return to;
+	}
+	public String getContains() {
+		return contains;
+	}
+	/**
+	 * method that set the text that the entries must contain
+	 * @param contains text of entries, null for all the entries
+	 */
+	public void setContains(String contains) {
+		this.contains = contains;
+	}
+	public Byte getLevel() {
+		return level;
+	}
+	/**
+	 * method that set the level of the entries, like LogRecord.LEVEL_ERROR
+	 * @param level of entries, null for all the levels
+	 */
+	public void setLevel(Byte level) {
+		this.level = level;
+	}
+	public int getMaxResults() {
+		return maxResults;
+	}
+	public void setMaxResults(int maxResults) {
+		this.maxResults = maxResults;
+	}
+
+	/* ################################################################################# */
+	/* END GET AND SET */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PACKAGE METHODS */
+	/* ################################################################################# */
+
+	long getFromNanos() {
+		return toEpochNanos(from);
+	}
+	long getToNanos() {
+		return toEpochNanos(to);
+	}
+
+	/**
+	 * method that check if an entry match the query
+	 * @param epochNanos time of entry
+	 * @param entryLevel level of entry
+	 * @param text of entry
+	 * @return true if the entry match, false otherwise
+	 */
+	boolean matches(long epochNanos, byte entryLevel, String text) {
+		if (epochNanos < getFromNanos() || epochNanos > getToNanos()) return false;
+		if (level != null && level != entryLevel) return false;
+		return contains == null || text.contains(contains);
+	}
+
+	/* ################################################################################# */
+	/* END PACKAGE METHODS */
+	/* ################################################################################# */
+
+	/* method that convert an instant in nanoseconds from epoch, saturating the far instants */
+	private static long toEpochNanos(Instant instant) {
+		try {
+			return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+		} catch (ArithmeticException e) {
+			return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+	}
+}
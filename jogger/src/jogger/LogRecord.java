@@ -0,0 +1,167 @@
+package jogger;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * This class is a structured log record, written as is by the binary format
+ * and rendered with the text layout of the loggers when it is read back
+ * @author Andrea Serra
+ *
+ */
+public final class LogRecord {
+	/** record of Jogger, rendered as the message */
+	public static final byte LEVEL_PLAIN = 0;
+	/** record of JoggerDebug, rendered with date, message and stack trace */
+	public static final byte LEVEL_DEBUG = 1;
+	/** record of JoggerError, rendered with date, error message and exception stack trace */
+	public static final byte LEVEL_ERROR = 2;
+	private static final String PLAIN_TEMPLATE = "{0}";
+
+	private final long epochNanos;
+	private final byte level;
+	private final long threadId;
+	private final String template;
+	private final Object[] args;
+	private final String[] frames;
+	private final String detail;
+
+	/**
+	 * constructor that set all the fields of record
+	 * @param epochNanos timestamp in nanoseconds from epoch
+	 * @param level of record
+	 * @param threadId of thread that write the record
+	 * @param template of message
+	 * @param args of template, max 3
+	 * @param frames of stack trace, null if not captured
+	 * @param detail text, like the stack trace of an exception, or null
+	 */
+	public LogRecord(long epochNanos, byte level, long threadId, String template, Object[] args, String[] frames, String detail) {
+		this.epochNanos = epochNanos;
+		this.level = level;
+		this.threadId = threadId;
+		this.template = template;
+		this.args = args;
+		this.frames = frames;
+		this.detail = detail;
+	}
+
+	/* ################################################################################# */
+	/* START STATIC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that get the current time in nanoseconds from epoch
+	 * @return nanoseconds from epoch
+	 */
+	public static long nowEpochNanos() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+	}
+
+	/**
+	 * method that create a record of a plain line
+	 * @param line to be written
+	 * @return the record
+	 */
+	static LogRecord plain(String line) {
+		return new LogRecord(nowEpochNanos(), LEVEL_PLAIN, Thread.currentThread().getId(), PLAIN_TEMPLATE, new Object[] {line}, null, null);
+	}
+
+	/* ################################################################################# */
+	/* END STATIC METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START GET */
+	/* ################################################################################# */
+
+	public long getEpochNanos() {
+		return epochNanos;
+	}
+	public byte getLevel() {
+		return level;
+	}
+	public long getThreadId() {
+		return threadId;
+	}
+	public String getTemplate() {
+		return template;
+	}
+	public Object[] getArgs() {
+		return args.clone();
+	}
+	public String[] getFrames() {
+		return frames == null ? null : frames.clone();
+	}
+	public String getDetail() {
+		return detail;
+	}
+
+	/* ################################################################################# */
+	/* END GET */
+	/* ################################################################################# */
+
+	/**
+	 * method that get the date time of record in the default zone
+	 * @return date time of record
+	 */
+	public LocalDateTime getDateTime() {
+		return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault());
+	}
+
+	/**
+	 * method that get the message formatted
+	 * @return message of record
+	 */
+	public String getMessage() {
+		return MessageTemplate.appendTo(new StringBuilder(), template, args.length, arg(0), arg(1), arg(2)).toString();
+	}
+
+	/**
+	 * method that render the record with the text layout of the logger that wrote it,
+	 * without the final new line added by the writers
+	 * @return text of record
+	 */
+	public String toText() {
+		return toText(TimestampFormat.ISO);
+	}
+
+	/**
+	 * method that render the record with the text layout of the logger that wrote it and a timestamp format,
+	 * without the final new line added by the writers
+	 * @param timestampFormat format of the date of record
+	 * @return text of record
+	 */
+	public String toText(TimestampFormat timestampFormat) {
+		StringBuilder out = new StringBuilder();
+		switch (level) {
+		case LEVEL_DEBUG:
+			TimestampRenderer.append(out, epochNanos, timestampFormat);
+			if (frames != null) {
+				out.append(" :: Message: ");
+				MessageTemplate.appendTo(out, template, args.length, arg(0), arg(1), arg(2));
+				for (String frame : frames) out.append("\n\t").append(frame);
+			} else MessageTemplate.appendTo(out.append(" :: "), template, args.length, arg(0), arg(1), arg(2));
+			return out.append('\n').toString();
+		case LEVEL_ERROR:
+			TimestampRenderer.append(out.append("Date: "), epochNanos, timestampFormat).append(" -- Error message: ");
+			MessageTemplate.appendTo(out, template, args.length, arg(0), arg(1), arg(2)).append("\n\t");
+			if (detail != null) out.append(detail);
+			return out.toString();
+		default:
+			return MessageTemplate.appendTo(out, template, args.length, arg(0), arg(1), arg(2)).toString();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toText();
+	}
+
+	/* method that get an argument, null if missing */
+	private Object arg(int index) {
+		return index < args.length ? args[index] : null;
+	}
+}
@@ -0,0 +1,132 @@
+package jogger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class hold the writer and the lock shared by all the loggers
+ * that work on the same log files. The writer is created with the settings
+ * of the first logger that write, the different settings of the others are reported and ignored
+ * @author Andrea Serra
+ *
+ */
+final class LogTarget {
+	/* names of the settings of writer, in the order of getSettings */
+	private static final String[] SETTING_NAMES = {"writer mode", "max size bytes", "durability", "fsync interval millis", "compression", "rotation policy", "max segments", "max total bytes", "max age millis"};
+	private final String fileNameLog;
+	private final String fileType;
+	private volatile SegmentWriter segmentWriter = null;
+	private volatile GroupCommitWriter groupCommitWriter = null;
+
+	/* PACKAGE */
+	final List<String> key;
+	final ReentrantLock lock = new ReentrantLock();
+	final JoggerMetrics metrics;
+	int references = 0;
+
+	/**
+	 * constructor that set the key of target
+	 * @param key made of log directory, prefix, log name and file type
+	 */
+	LogTarget(List<String> key) {
+		this.key = key;
+		this.fileNameLog = key.get(1) + key.get(2) + '-';
+		this.fileType = key.get(3);
+		this.metrics = new JoggerMetrics(key);
+	}
+
+	/**
+	 * method that get the writer of the active segment
+	 * @return segment writer, null if not opened
+	 */
+	SegmentWriter getSegmentWriter() {
+		return segmentWriter;
+	}
+
+	/**
+	 * method that get the group commit writer
+	 * @return group commit writer, null if not opened
+	 */
+	GroupCommitWriter getGroupCommitWriter() {
+		return groupCommitWriter;
+	}
+
+	/**
+	 * method that get the log files of target, for the messages
+	 * @return path of the segments, with a wildcard for the sequence
+	 */
+	String getName() {
+		return new File(key.get(0), fileNameLog + '*' + fileType).getPath();
+	}
+
+	/**
+	 * method that describe the settings of a logger that differ from the ones of the opened writer,
+	 * they are ignored because the writer is shared
+	 * @param settings logger whose settings are compared
+	 * @return the settings ignored, null if the writer is not opened or no one differ
+	 */
+	String getIgnoredSettings(Jogger settings) {
+		SegmentWriter writer = segmentWriter;
+		if (writer == null) return null;
+
+		List<Object> used = new ArrayList<Object>();
+		used.add(writer instanceof MappedSegmentWriter ? WriterMode.MAPPED : WriterMode.CHANNEL);
+		used.addAll(writer.getSettings());
+		List<Object> wanted = getSettings(settings);
+		StringBuilder ignored = null;
+		for (int i = 0; i < SETTING_NAMES.length; i++) {
+			if (Objects.equals(used.get(i), wanted.get(i))) continue;
+			ignored = ignored == null ? new StringBuilder() : ignored.append(", ");
+			ignored.append(SETTING_NAMES[i]).append(' ').append(wanted.get(i)).append(" (used ").append(used.get(i)).append(')');
+		}
+		return ignored == null ? null : ignored.toString();
+	}
+
+	/**
+	 * method that create the writers if they are not created yet
+	 * @param logDir where the segments are located
+	 * @param settings logger whose settings are used to create the writers
+	 * @return segment writer
+	 */
+	synchronized SegmentWriter openWriter(File logDir, Jogger settings) {
+		if (segmentWriter != null) return segmentWriter;
+
+		SegmentWriter writer;
+		/* the binary records are written with the channel, the mapped segments are trimmed of the zeros */
+		if (settings.getRecordFormat() == RecordFormat.BINARY) writer = new BinarySegmentWriter(logDir, fileNameLog, fileType, settings.getMaxSizeBytes());
+		else if (settings.getWriterMode() == WriterMode.MAPPED) writer = new MappedSegmentWriter(logDir, fileNameLog, fileType, settings.getMaxSizeBytes());
+		else writer = new SegmentWriter(logDir, fileNameLog, fileType, settings.getMaxSizeBytes());
+		writer.setDurability(settings.getDurability(), settings.getFsyncIntervalMillis());
+		writer.setCompression(settings.getCompression());
+		writer.setRotationPolicy(settings.getRotationPolicy());
+		writer.setRetention(settings.getMaxSegments(), settings.getMaxTotalBytes(), settings.getMaxAgeMillis());
+		writer.setMetrics(metrics);
+		groupCommitWriter = new GroupCommitWriter(writer);
+		segmentWriter = writer;
+		return writer;
+	}
+
+	/**
+	 * method that close the writers, they will be created again on next write.
+	 * The writers are detached before the close, the loggers that still hold them retry on the new ones
+	 */
+	synchronized void resetWriter() {
+		SegmentWriter writer = segmentWriter;
+		if (writer == null) return;
+		segmentWriter = null;
+		groupCommitWriter = null;
+		writer.close();
+	}
+
+	/* method that get the settings of a logger used by the writer, in the order of names */
+	private static List<Object> getSettings(Jogger settings) {
+		/* the binary records are always written with the channel */
+		WriterMode writerMode = settings.getRecordFormat() == RecordFormat.BINARY ? WriterMode.CHANNEL : settings.getWriterMode();
+		return Arrays.<Object>asList(writerMode, settings.getMaxSizeBytes(), settings.getDurability(), settings.getFsyncIntervalMillis(), settings.getCompression(), settings.getRotationPolicy(),
+				settings.getMaxSegments(), settings.getMaxTotalBytes(), settings.getMaxAgeMillis());
+	}
+}
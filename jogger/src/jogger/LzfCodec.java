@@ -0,0 +1,290 @@
+package jogger;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class implements in pure Java the LZF block compression,
+ * with streams that write the blocks in chunks of 64 KB.
+ * A chunk is made of the raw length and the compressed length, as int,
+ * followed by the compressed bytes, or by the raw bytes if the lengths are equal
+ * @author Andrea Serra
+ *
+ */
+final class LzfCodec {
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int HASH_LOG = 14;
+	private static final int MAX_LITERAL = 32;
+	private static final int MAX_OFFSET = 1 << 13;
+	private static final int MAX_MATCH = 264;
+	private static final byte[] MAGIC = {'J', 'L', 'Z', 'F'};
+
+	private LzfCodec() {
+	}
+
+	/* ################################################################################# */
+	/* START BLOCK METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that get the max size of a compressed block
+	 * @param length of raw block
+	 * @return max size of compressed block
+	 */
+	static int maxCompressedLength(int length) {
+		return length + (length / MAX_LITERAL) + 16;
+	}
+
+	/**
+	 * method that compress a block
+	 * @param in raw bytes
+	 * @param inLength number of raw bytes
+	 * @param out where the compressed bytes are written, of at least maxCompressedLength bytes
+	 * @param hashTable reused table of 1 &lt;&lt; 14 ints
+	 * @return number of compressed bytes
+	 */
+	static int compress(byte[] in, int inLength, byte[] out, int[] hashTable) {
+		for (int i = 0; i < hashTable.length; i++) hashTable[i] = -1;
+		int ip = 0;
+		int op = 1;
+		int literalCtrl = 0;
+		int literals = 0;
+
+		while (ip + 2 < inLength) {
+			int hash = hash(in, ip);
+			int ref = hashTable[hash];
+			hashTable[hash] = ip;
+			int offset = ip - ref - 1;
+
+			if (ref < 0 || offset >= MAX_OFFSET || in[ref] != in[ip] || in[ref + 1] != in[ip + 1] || in[ref + 2] != in[ip + 2]) {
+				/* literal byte, close the run when it is full */
+				out[op++] = in[ip++];
+				if (++literals == MAX_LITERAL) {
+					out[literalCtrl] = (byte) (MAX_LITERAL - 1);
+					literals = 0;
+					literalCtrl = op++;
+				}
+				continue;
+			}
+
+			/* close the literal run, or drop its reserved control byte */
+			if (literals > 0) out[literalCtrl] = (byte) (literals - 1);
+			else op = literalCtrl;
+
+			int maxLength = Math.min(MAX_MATCH, inLength - ip);
+			int length = 3;
+			while (length < maxLength && in[ref + length] == in[ip + length]) length++;
+
+			/* write the back reference */
+			int code = length - 2;
+			if (code < 7) out[op++] = (byte) ((offset >> 8) + (code << 5));
+			else {
+				out[op++] = (byte) ((offset >> 8) + (7 << 5));
+				out[op++] = (byte) (code - 7);
+			}
+			out[op++] = (byte) offset;
+			ip += length;
+
+			/* reserve the control byte of next literal run */
+			literals = 0;
+			literalCtrl = op++;
+		}
+
+		/* the last bytes are always literals */
+		while (ip < inLength) {
+			out[op++] = in[ip++];
+			if (++literals == MAX_LITERAL) {
+				out[literalCtrl] = (byte) (MAX_LITERAL - 1);
+				literals = 0;
+				literalCtrl = op++;
+			}
+		}
+		if (literals > 0) out[literalCtrl] = (byte) (literals - 1);
+		else op = literalCtrl;
+		return op;
+	}
+
+	/**
+	 * method that decompress a block
+	 * @param in compressed bytes
+	 * @param inLength number of compressed bytes
+	 * @param out where the raw bytes are written
+	 * @param outLength number of raw bytes
+	 * @throws IOException if the block is corrupted
+	 */
+	static void decompress(byte[] in, int inLength, byte[] out, int outLength) throws IOException {
+		int ip = 0;
+		int op = 0;
+		try {
+			while (ip < inLength) {
+				int ctrl = in[ip++] & 0xFF;
+				if (ctrl < MAX_LITERAL) {
+					/* literal run */
+					int length = ctrl + 1;
+					System.arraycopy(in, ip, out, op, length);
+					ip += length;
+					op += length;
+				} else {
+					/* back reference, the copy can overlap */
+					int length = ctrl >> 5;
+					if (length == 7) length += in[ip++] & 0xFF;
+					length += 2;
+					int ref = op - ((ctrl & 0x1F) << 8) - 1 - (in[ip++] & 0xFF);
+					if (ref < 0) throw new IOException("Corrupted LZF block");
+					for (int i = 0; i < length; i++) out[op++] = out[ref++];
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupted LZF block", e);
+		}
+		if (op != outLength) throw new IOException("Corrupted LZF block");
+	}
+
+	/* ################################################################################# */
+	/* END BLOCK METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START STREAMS */
+	/* ################################################################################# */
+
+	/**
+	 * Output stream that compress in LZF chunks
+	 */
+	static final class LzfOutputStream extends FilterOutputStream {
+		private final byte[] chunk = new byte[CHUNK_SIZE];
+		private final byte[] compressed = new byte[maxCompressedLength(CHUNK_SIZE)];
+		private final int[] hashTable = new int[1 << HASH_LOG];
+		private int length = 0;
+
+		LzfOutputStream(OutputStream out) throws IOException {
+			super(out);
+			out.write(MAGIC);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (length == CHUNK_SIZE) writeChunk();
+			chunk[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (length == CHUNK_SIZE) writeChunk();
+				int count = Math.min(len, CHUNK_SIZE - length);
+				System.arraycopy(b, off, chunk, length, count);
+				length += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (length > 0) writeChunk();
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			out.close();
+		}
+
+		/* method that write the buffered chunk */
+		private void writeChunk() throws IOException {
+			int compressedLength = compress(chunk, length, compressed, hashTable);
+			writeInt(length);
+			if (compressedLength < length) {
+				writeInt(compressedLength);
+				out.write(compressed, 0, compressedLength);
+			} else {
+				writeInt(length);
+				out.write(chunk, 0, length);
+			}
+			length = 0;
+		}
+
+		private void writeInt(int value) throws IOException {
+			out.write(value >>> 24);
+			out.write(value >>> 16);
+			out.write(value >>> 8);
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Input stream that decompress the LZF chunks
+	 */
+	static final class LzfInputStream extends InputStream {
+		private final DataInputStream in;
+		private final byte[] chunk = new byte[CHUNK_SIZE];
+		private byte[] compressed = new byte[maxCompressedLength(CHUNK_SIZE)];
+		private int position = 0;
+		private int length = 0;
+
+		LzfInputStream(InputStream in) throws IOException {
+			this.in = new DataInputStream(in);
+			byte[] magic = new byte[MAGIC.length];
+			this.in.readFully(magic);
+			for (int i = 0; i < MAGIC.length; i++) if (magic[i] != MAGIC[i]) throw new IOException("Not an LZF stream");
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position == length && !readChunk()) return -1;
+			return chunk[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			if (position == length && !readChunk()) return -1;
+			int count = Math.min(len, length - position);
+			System.arraycopy(chunk, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		/* method that read and decompress the next chunk */
+		private boolean readChunk() throws IOException {
+			int rawLength;
+			try {
+				rawLength = in.readInt();
+			} catch (EOFException e) {
+				return false;
+			}
+			int compressedLength = in.readInt();
+			if (rawLength < 0 || rawLength > CHUNK_SIZE || compressedLength < 0 || compressedLength > rawLength) throw new IOException("Corrupted LZF chunk");
+
+			if (compressedLength == rawLength) in.readFully(chunk, 0, rawLength);
+			else {
+				in.readFully(compressed, 0, compressedLength);
+				decompress(compressed, compressedLength, chunk, rawLength);
+			}
+			position = 0;
+			length = rawLength;
+			return true;
+		}
+	}
+
+	/* ################################################################################# */
+	/* END STREAMS */
+	/* ################################################################################# */
+
+	/* method that hash the next 3 bytes */
+	private static int hash(byte[] in, int ip) {
+		int value = ((in[ip] & 0xFF) << 16) | ((in[ip + 1] & 0xFF) << 8) | (in[ip + 2] & 0xFF);
+		return (value * 0x9E3779B1) >>> (32 - HASH_LOG);
+	}
+}
@@ -0,0 +1,228 @@
+package jogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.concurrent.Future;
+
+import exception.LogFileException;
+
+/**
+ * This class write the segments mapping them in memory at their max size.
+ * The next segment is mapped in background, on rotation the active segment
+ * is truncated to the bytes really written
+ * @author Andrea Serra
+ *
+ */
+class MappedSegmentWriter extends SegmentWriter {
+	private static final String UNBL_MAP_FILE_MSGFRMT = "Unable to map log file '{0}'.\nError message: {1}";
+	/* max size of a mapping, the segments are rotated before it whatever the policy */
+	private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+	private MappedByteBuffer mapped;
+	private Future<PreparedSegment> nextSegment = null;
+
+	/* segment created and mapped in background */
+	private static final class PreparedSegment {
+		private final File file;
+		private final FileChannel channel;
+		private final MappedByteBuffer mapped;
+
+		private PreparedSegment(File file, FileChannel channel, MappedByteBuffer mapped) {
+			this.file = file;
+			this.channel = channel;
+			this.mapped = mapped;
+		}
+	}
+
+	/**
+	 * constructor that set the directory and the name of the segments
+	 * @param logDir where the segments are located
+	 * @param fileNameLog prefix and name of log, like "log_jogger-"
+	 * @param fileType extension of segments
+	 * @param maxSizeBytes of segments
+	 */
+	MappedSegmentWriter(File logDir, String fileNameLog, String fileType, int maxSizeBytes) {
+		super(logDir, fileNameLog, fileType, maxSizeBytes);
+	}
+
+	/* ################################################################################# */
+	/* START PROTECTED METHODS */
+	/* ################################################################################# */
+
+	@Override
+	protected boolean needsRotation(int length) {
+		/* a line bigger than a segment is written on an empty segment, the segments rotated only by time at the max size of mapping */
+		if (activeSize == 0) return false;
+		return activeSize + length > MAX_MAPPED_SIZE || (rotationPolicy.isBySize() && activeSize + length > mapped.capacity());
+	}
+
+	@Override
+	protected void writeBytes(ByteBuffer bytes) throws LogFileException {
+		int length = bytes.remaining();
+		/* the segments rotated only by time grow doubling the mapping, up to its max size */
+		if (length > mapped.remaining()) remap(Math.min(Math.max(activeSize + length, (long) mapped.capacity() << 1), MAX_MAPPED_SIZE));
+		mapped.put(bytes);
+		activeSize += length;
+	}
+
+	@Override
+	protected void force() throws LogFileException {
+		mapped.force();
+	}
+
+	@Override
+	protected void openSegment(File file) throws LogFileException {
+		PreparedSegment prepared = takePrepared(file);
+		if (prepared != null) {
+			channel = prepared.channel;
+			mapped = prepared.mapped;
+			activeFile = file;
+			activeSize = 0;
+		} else {
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				activeFile = file;
+				activeSize = getWrittenSize(channel);
+				mapped = channel.map(MapMode.READ_WRITE, 0, Math.max(maxSizeBytes, activeSize));
+				mapped.position((int) activeSize);
+			} catch (IOException e) {
+				throw new LogFileException(MessageFormat.format(UNBL_MAP_FILE_MSGFRMT, file.getPath(), e.getMessage()));
+			}
+		}
+
+		/* map the following segment in background */
+		prepareNext(getSegmentFile(predictNextSequence()));
+	}
+
+	@Override
+	protected void closeActive() {
+		if (channel == null) return;
+		if (durability != Durability.NONE) mapped.force();
+		/* the mapping is dropped before the truncate, on some systems a mapped file can not be truncated */
+		mapped = null;
+		try {
+			channel.truncate(activeSize);
+		} catch (IOException e) {
+			/* the zeros left at the end are skipped when the segment is opened again */
+			e.printStackTrace();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+	@Override
+	protected void discardPrepared() {
+		super.discardPrepared();
+		Future<PreparedSegment> future = nextSegment;
+		File file = preparedFile;
+		nextSegment = null;
+		preparedFile = null;
+		if (future == null) return;
+
+		PreparedSegment prepared = awaitPrepared(future);
+		if (prepared == null) {
+			/* the preparation failed after the file was created */
+			deleteIfUnwritten(file);
+			return;
+		}
+		try {
+			prepared.channel.truncate(0);
+			prepared.channel.close();
+		} catch (IOException e) {
+		}
+		prepared.file.delete();
+	}
+
+	/* ################################################################################# */
+	/* END PROTECTED METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that map the active segment again with a bigger size */
+	private void remap(long size) throws LogFileException {
+		try {
+			mapped = channel.map(MapMode.READ_WRITE, 0, size);
+			mapped.position((int) activeSize);
+		} catch (IOException e) {
+			throw new LogFileException(MessageFormat.format(UNBL_MAP_FILE_MSGFRMT, activeFile.getPath(), e.getMessage()));
+		}
+	}
+
+	/* method that schedule the creation and the mapping of the next segment */
+	private void prepareNext(File file) {
+		final int size = maxSizeBytes;
+		preparedFile = file;
+		nextSegment = JoggerExecutors.background().submit(() -> {
+			FileChannel next = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				return new PreparedSegment(file, next, next.map(MapMode.READ_WRITE, 0, size));
+			} catch (IOException e) {
+				next.close();
+				throw e;
+			}
+		});
+	}
+
+	/* method that get the prepared segment if it is the requested file */
+	private PreparedSegment takePrepared(File file) {
+		Future<PreparedSegment> future = nextSegment;
+		if (future == null) return null;
+
+		PreparedSegment prepared = awaitPrepared(future);
+		if (prepared == null) {
+			nextSegment = null;
+			preparedFile = null;
+			return null;
+		}
+		if (prepared.file.equals(file) && prepared.mapped.capacity() >= maxSizeBytes) {
+			nextSegment = null;
+			preparedFile = null;
+			return prepared;
+		}
+
+		/* prepared with old settings or for another period, dropped */
+		discardPrepared();
+		return null;
+	}
+
+	/* method that delete a segment with no bytes written */
+	private static void deleteIfUnwritten(File file) {
+		if (file == null || !file.exists()) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (getWrittenSize(channel) > 0) return;
+		} catch (IOException e) {
+			return;
+		}
+		file.delete();
+	}
+
+	/* method that get the bytes written on a segment, skipping the padding left by a crash */
+	private static long getWrittenSize(FileChannel channel) throws IOException {
+		long size = channel.size();
+		ByteBuffer chunk = ByteBuffer.allocate(4096);
+		while (size > 0) {
+			int length = (int) Math.min(chunk.capacity(), size);
+			chunk.clear().limit(length);
+			while (chunk.hasRemaining()) if (channel.read(chunk, size - length + chunk.position()) < 0) break;
+			for (int i = length - 1; i >= 0; i--) if (chunk.get(i) != 0) return size - length + i + 1;
+			size -= length;
+		}
+		return 0;
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+}
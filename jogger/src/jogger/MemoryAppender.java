@@ -0,0 +1,90 @@
+package jogger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class keep the last lines of a log in memory, in a ring of bytes with fixed size.
+ * The oldest bytes are overwritten, the lines read start from the first complete one
+ * @author Andrea Serra
+ *
+ */
+public class MemoryAppender implements Appender {
+	private final byte[] ring;
+	private long written = 0;
+
+	/**
+	 * constructor that set the size of ring
+	 * @param capacityBytes max bytes kept
+	 */
+	public MemoryAppender(int capacityBytes) {
+		if (capacityBytes <= 0) throw new IllegalArgumentException("The capacity must be positive");
+		this.ring = new byte[capacityBytes];
+	}
+
+	@Override
+	public synchronized void append(ByteBuffer bytes) {
+		/* only the tail of a batch bigger than the ring is kept */
+		if (bytes.remaining() > ring.length) {
+			written += bytes.remaining() - ring.length;
+			bytes.position(bytes.limit() - ring.length);
+		}
+		while (bytes.hasRemaining()) {
+			int offset = (int) (written % ring.length);
+			int length = Math.min(bytes.remaining(), ring.length - offset);
+			bytes.get(ring, offset, length);
+			written += length;
+		}
+	}
+
+	/**
+	 * method that get the bytes kept, from the oldest to the newest
+	 * @return bytes kept
+	 */
+	public synchronized byte[] toByteArray() {
+		int length = (int) Math.min(written, ring.length);
+		byte[] bytes = new byte[length];
+		int start = (int) ((written - length) % ring.length);
+		int first = Math.min(length, ring.length - start);
+		System.arraycopy(ring, start, bytes, 0, first);
+		System.arraycopy(ring, 0, bytes, first, length - first);
+		return bytes;
+	}
+
+	/**
+	 * method that get the complete lines kept, from the oldest to the newest
+	 * @return lines kept, without new line
+	 */
+	public List<String> getLines() {
+		byte[] bytes;
+		boolean wrapped;
+		synchronized (this) {
+			bytes = toByteArray();
+			wrapped = written > ring.length;
+		}
+
+		ArrayList<String> lines = new ArrayList<String>();
+		int start = 0;
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] != '\n') continue;
+			/* the first line is partial if the ring has overwritten its start */
+			if (!wrapped || start > 0) lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+			start = i + 1;
+		}
+		return lines;
+	}
+
+	/**
+	 * method that get the bytes appended from the creation
+	 * @return number of bytes appended
+	 */
+	public synchronized long getWrittenBytes() {
+		return written;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,43 @@
+package jogger;
+
+/**
+ * This class format the message templates of the loggers.
+ * The placeholders are like the MessageFormat ones, {0}, {1} and {2},
+ * without format types and quoting, and the arguments are appended with String.valueOf
+ * @author Andrea Serra
+ *
+ */
+final class MessageTemplate {
+
+	private MessageTemplate() {
+	}
+
+	/**
+	 * method that append the template formatted with the arguments
+	 * @param out where the message is appended
+	 * @param template of message
+	 * @param argCount number of arguments, zero to append the template as is
+	 * @param arg0 first argument
+	 * @param arg1 second argument
+	 * @param arg2 third argument
+	 * @return the builder
+	 */
+	static StringBuilder appendTo(StringBuilder out, String template, int argCount, Object arg0, Object arg1, Object arg2) {
+		if (template == null || argCount == 0) return out.append(template);
+
+		int length = template.length();
+		int last = 0;
+		for (int i = 0; i + 2 < length; i++) {
+			/* search a placeholder with a valid index */
+			if (template.charAt(i) != '{' || template.charAt(i + 2) != '}') continue;
+			int index = template.charAt(i + 1) - '0';
+			if (index < 0 || index >= argCount) continue;
+
+			out.append(template, last, i);
+			out.append(index == 0 ? arg0 : index == 1 ? arg1 : arg2);
+			last = i + 3;
+			i += 2;
+		}
+		return out.append(template, last, length);
+	}
+}
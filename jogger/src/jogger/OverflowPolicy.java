@@ -0,0 +1,19 @@
+package jogger;
+
+/**
+ * Policies applied when a line can not be written at once, because the lock is taken
+ * by another writer or the buffer of async mode is full.
+ * The lines dropped are counted in the metrics of log
+ * @author Andrea Serra
+ *
+ */
+public enum OverflowPolicy {
+	/** wait up to the timeout, then the line is dropped; without buffer a LockLogException is thrown */
+	BLOCK,
+	/** drop the new line */
+	DROP_NEWEST,
+	/** overwrite the oldest line queued in async mode; without buffer no line is queued, so the new one is dropped */
+	DROP_OLDEST,
+	/** keep one line every N of the overflowing ones, waiting as BLOCK, and drop the others */
+	SAMPLE;
+}
@@ -0,0 +1,16 @@
+package jogger;
+
+/**
+ * Formats of the records written on the log segments
+ * @author Andrea Serra
+ *
+ */
+public enum RecordFormat {
+	/** free form text lines */
+	TEXT,
+	/** length prefixed binary records, the segments are named with the suffix ".bin" after the file type */
+	BINARY;
+
+	/** suffix appended to the file type of binary segments */
+	public static final String BINARY_SUFFIX = ".bin";
+}
@@ -0,0 +1,123 @@
+package jogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class read the lines of a file from the last to the first,
+ * loading the file backward in fixed size chunks
+ * @author Andrea Serra
+ *
+ */
+final class ReverseLineReader implements Closeable {
+	private static final int CHUNK_SIZE = 8192;
+	private final FileChannel channel;
+	private final byte[] data;
+	private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+	private byte[] line = new byte[256];
+	private int lineStart = line.length;
+	private long position;
+	private int chunkPos = 0;
+	private boolean done;
+
+	/**
+	 * constructor that open the file to be read
+	 * @param file to be read
+	 * @throws IOException
+	 */
+	ReverseLineReader(File file) throws IOException {
+		/* a compressed or binary segment is decoded in memory, segments are bounded */
+		if (BinaryRecordDecoder.isBinarySegment(file)) {
+			channel = null;
+			data = BinaryRecordDecoder.renderTextBytes(file);
+			position = data.length;
+		} else if (Compression.fromFileName(file.getName()) == Compression.NONE) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			data = null;
+			position = channel.size();
+		} else {
+			channel = null;
+			data = JoggerReader.readAllBytes(file);
+			position = data.length;
+		}
+		done = position == 0;
+
+		if (!done) loadChunk();
+
+		/* skip the padding of mapped segments and the new line at the end of file */
+		while (!done) {
+			if (chunkPos == 0) {
+				if (position == 0) done = true;
+				else loadChunk();
+			} else if (chunk.get(chunkPos - 1) == 0) chunkPos--;
+			else break;
+		}
+		if (!done && chunk.get(chunkPos - 1) == '\n') chunkPos--;
+	}
+
+	/**
+	 * method that read the previous line
+	 * @return previous line without line terminator, null if the start of file is reached
+	 * @throws IOException
+	 */
+	String readLine() throws IOException {
+		if (done) return null;
+
+		while (true) {
+			if (chunkPos == 0) {
+				/* start of file reached, return the first line */
+				if (position == 0) {
+					done = true;
+					return takeLine();
+				}
+				loadChunk();
+			}
+
+			byte b = chunk.get(--chunkPos);
+			if (b == '\n') return takeLine();
+			prepend(b);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) channel.close();
+	}
+
+	/* method that load the chunk before the current position */
+	private void loadChunk() throws IOException {
+		int size = (int) Math.min(CHUNK_SIZE, position);
+		position -= size;
+		chunk.clear().limit(size);
+		if (data != null) chunk.put(data, (int) position, size);
+		else while (chunk.hasRemaining()) {
+			if (channel.read(chunk, position + chunk.position()) < 0) throw new IOException("Unexpected end of file");
+		}
+		chunkPos = size;
+	}
+
+	/* method that add a byte at the start of the line */
+	private void prepend(byte b) {
+		if (lineStart == 0) {
+			byte[] grown = new byte[line.length << 1];
+			System.arraycopy(line, 0, grown, line.length, line.length);
+			lineStart = line.length;
+			line = grown;
+		}
+		line[--lineStart] = b;
+	}
+
+	/* method that decode the line and reset it */
+	private String takeLine() {
+		int end = line.length;
+		if (end > lineStart && line[end - 1] == '\r') end--;
+		String out = new String(line, lineStart, end - lineStart, StandardCharsets.UTF_8);
+		lineStart = line.length;
+		return out;
+	}
+}
@@ -0,0 +1,159 @@
+package jogger;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class implements a bounded and preallocated ring buffer of log entries,
+ * with many producers and a single consumer.
+ * A slot is claimed only if it is free, or overwriting the oldest entry queued,
+ * so a producer never wait with a claimed slot and can give up when the buffer is full
+ * @author Andrea Serra
+ *
+ */
+final class RingBuffer {
+	/* sequence of a slot while it is written */
+	private static final long WRITING = -2;
+	/* bit of the claims set on close, no sequence can be claimed after it */
+	private static final long CLOSED = 1L << 62;
+	private final AtomicReferenceArray<Object> slots;
+	private final AtomicLongArray published;
+	private final int mask;
+	private final int capacity;
+	private final WaitStrategy waitStrategy;
+	/* number of sequences claimed, with the closed bit */
+	private final AtomicLong claims = new AtomicLong();
+	private volatile long consumed = -1;
+	/* entries overwritten before the consumer read them, used only by the consumer */
+	private long overwritten = 0;
+
+	/**
+	 * constructor that set the capacity, rounded up to a power of two, and the wait strategy
+	 * @param capacity of ring buffer
+	 * @param waitStrategy used by producers while the previous lap of a slot is written
+	 */
+	RingBuffer(int capacity, WaitStrategy waitStrategy) {
+		if (capacity < 1) throw new IllegalArgumentException("Ring buffer capacity must be positive");
+		int size = 1;
+		while (size < capacity) size <<= 1;
+		this.slots = new AtomicReferenceArray<Object>(size);
+		this.published = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.capacity = size;
+		this.waitStrategy = waitStrategy;
+		for (int i = 0; i < size; i++) published.set(i, -1);
+	}
+
+	/**
+	 * method that publish an entry if the buffer has a free slot
+	 * @param entry to be published, a line or a record
+	 * @return true if the entry is published, false if the buffer is full or closed
+	 */
+	boolean tryPublish(Object entry) {
+		/* claim the sequence only if its slot is consumed, the close and the claims are ordered on the same counter */
+		long sequence;
+		do {
+			sequence = claims.get();
+			if ((sequence & CLOSED) != 0 || sequence - capacity > consumed) return false;
+		} while (!claims.compareAndSet(sequence, sequence + 1));
+
+		store(sequence, entry);
+		return true;
+	}
+
+	/**
+	 * method that publish an entry, overwriting the oldest one if the buffer is full
+	 * @param entry to be published, a line or a record
+	 * @return true if the entry is published, false if the buffer is closed
+	 */
+	boolean publishOverwrite(Object entry) {
+		long sequence;
+		do {
+			sequence = claims.get();
+			if ((sequence & CLOSED) != 0) return false;
+		} while (!claims.compareAndSet(sequence, sequence + 1));
+
+		/* the previous lap of slot must be stored before it is overwritten */
+		long previous = sequence - capacity;
+		int index = (int) sequence & mask;
+		while (previous >= 0 && published.get(index) < previous) waitStrategy.idle();
+
+		store(sequence, entry);
+		return true;
+	}
+
+	/**
+	 * method that move the published entries in the batch, skipping the overwritten ones
+	 * @param batch where the entries are added
+	 * @param maxBatch max number of entries to be drained
+	 * @return number of entries drained
+	 */
+	int drain(List<Object> batch, int maxBatch) {
+		long next = consumed + 1;
+		int count = 0;
+		while (count < maxBatch) {
+			int index = (int) next & mask;
+			long sequence = published.get(index);
+			if (sequence < next) break;
+
+			/* the entry is valid only if the slot is not overwritten while it is read */
+			Object entry = sequence == next ? slots.get(index) : null;
+			if (entry != null && published.get(index) == next && slots.compareAndSet(index, entry, null)) {
+				batch.add(entry);
+				count++;
+			} else overwritten++;
+			next++;
+		}
+
+		/* release the slots to the producers */
+		if (next - 1 > consumed) consumed = next - 1;
+		return count;
+	}
+
+	/**
+	 * method that get and reset the number of entries overwritten before they were drained,
+	 * it must be called by the consumer
+	 * @return number of entries lost
+	 */
+	long takeOverwritten() {
+		long lost = overwritten;
+		overwritten = 0;
+		return lost;
+	}
+
+	long getClaimed() {
+		return (claims.get() & ~CLOSED) - 1;
+	}
+	long getConsumed() {
+		return consumed;
+	}
+	int getCapacity() {
+		return capacity;
+	}
+	boolean isEmpty() {
+		return consumed >= getClaimed();
+	}
+	boolean isClosed() {
+		return (claims.get() & CLOSED) != 0;
+	}
+
+	/**
+	 * method that close the buffer, the entries claimed before are still drained by the consumer
+	 */
+	void close() {
+		long state;
+		do {
+			state = claims.get();
+		} while ((state & CLOSED) == 0 && !claims.compareAndSet(state, state | CLOSED));
+	}
+
+	/* method that store the entry and make it visible to the consumer */
+	private void store(long sequence, Object entry) {
+		int index = (int) sequence & mask;
+		published.set(index, WRITING);
+		slots.set(index, entry);
+		published.set(index, sequence);
+	}
+}
@@ -0,0 +1,82 @@
+package jogger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Policies that decide when the active segment is rotated.
+ * The segments rotated by time have the date of their period in the name,
+ * like "log_jogger-20201231T13-000000.log", the size rotations in the same period increment the last number
+ * @author Andrea Serra
+ *
+ */
+public enum RotationPolicy {
+	/** the segment is rotated before it exceeds the max size */
+	SIZE(true, null),
+	/** the segment is rotated every hour */
+	HOURLY(false, ChronoUnit.HOURS),
+	/** the segment is rotated every day */
+	DAILY(false, ChronoUnit.DAYS),
+	/** the segment is rotated before it exceeds the max size, or every hour */
+	SIZE_OR_HOURLY(true, ChronoUnit.HOURS),
+	/** the segment is rotated before it exceeds the max size, or every day */
+	SIZE_OR_DAILY(true, ChronoUnit.DAYS);
+
+	/* PACKAGE */
+	/* the sequence of a dated segment is the period, as yyyyMMddHH, followed by six digits */
+	static final long SEQUENCES_PER_PERIOD = 1_000_000L;
+	static final long DATED_SEQUENCE_MIN = 1970010100L * SEQUENCES_PER_PERIOD;
+
+	private final boolean bySize;
+	private final ChronoUnit period;
+
+	private RotationPolicy(boolean bySize, ChronoUnit period) {
+		this.bySize = bySize;
+		this.period = period;
+	}
+
+	/**
+	 * method that check if the policy rotate the segments by size
+	 * @return true if rotated by size, false otherwise
+	 */
+	public boolean isBySize() {
+		return bySize;
+	}
+
+	/**
+	 * method that check if the policy rotate the segments by time
+	 * @return true if rotated by time, false otherwise
+	 */
+	public boolean isByTime() {
+		return period != null;
+	}
+
+	/**
+	 * method that get the end of the period of a time
+	 * @param millis time from epoch
+	 * @return end of period in millis from epoch, Long.MAX_VALUE if not rotated by time
+	 */
+	long getPeriodEnd(long millis) {
+		if (period == null) return Long.MAX_VALUE;
+		return getPeriodStart(millis).plus(1, period).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * method that get the first sequence of the period of a time
+	 * @param millis time from epoch
+	 * @return first sequence of period, 0 if not rotated by time
+	 */
+	long getFirstSequence(long millis) {
+		if (period == null) return 0;
+		ZonedDateTime start = getPeriodStart(millis);
+		long key = ((start.getYear() * 100L + start.getMonthValue()) * 100L + start.getDayOfMonth()) * 100L + start.getHour();
+		return key * SEQUENCES_PER_PERIOD;
+	}
+
+	/* method that get the start of the period in the default zone */
+	private ZonedDateTime getPeriodStart(long millis) {
+		return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).truncatedTo(period);
+	}
+}
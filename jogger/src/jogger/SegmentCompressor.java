@@ -0,0 +1,72 @@
+package jogger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class compress the rotated segments on the maintenance executor
+ * @author Andrea Serra
+ *
+ */
+final class SegmentCompressor {
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int BUFFER_SIZE = 8192;
+
+	private SegmentCompressor() {
+	}
+
+	/**
+	 * method that schedule the compression of a closed segment
+	 * @param segment to be compressed
+	 * @param compression codec
+	 */
+	static void compressLater(File segment, Compression compression) {
+		if (compression == Compression.NONE) return;
+		JoggerExecutors.maintenance().execute(() -> {
+			try {
+				compress(segment, compression);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * method that compress a segment, the compressed file replace it only when it is complete
+	 * @param segment to be compressed
+	 * @param compression codec
+	 * @return compressed file
+	 * @throws IOException
+	 */
+	static File compress(File segment, Compression compression) throws IOException {
+		File compressed = new File(segment.getPath() + compression.getSuffix());
+		File tmp = new File(compressed.getPath() + TMP_SUFFIX);
+
+		try (OutputStream out = openOutputStream(tmp, compression)) {
+			Files.copy(segment.toPath(), out);
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		}
+
+		/* replace the segment, the readers prefer the uncompressed one while both exist */
+		Files.move(tmp.toPath(), compressed.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		/* the age of segment is the time of its last write */
+		compressed.setLastModified(segment.lastModified());
+		Files.delete(segment.toPath());
+		return compressed;
+	}
+
+	/* method that open the stream of compressed file */
+	private static OutputStream openOutputStream(File file, Compression compression) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		if (compression == Compression.GZIP) return new GZIPOutputStream(out, BUFFER_SIZE);
+		return new LzfCodec.LzfOutputStream(out);
+	}
+}
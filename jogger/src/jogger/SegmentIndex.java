@@ -0,0 +1,225 @@
+package jogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class is the sparse index of a segment, it map the time of writes to the byte offsets
+ * every INDEX_INTERVAL_BYTES bytes, or every INDEX_INTERVAL_NANOS for the slow logs,
+ * and it is saved next to the segment when the segment is closed.
+ * The entries are written after their time, queued or waiting the lock, so the end of a range
+ * is extended by the max delay seen between the time of entries and their write
+ * @author Andrea Serra
+ *
+ */
+final class SegmentIndex {
+	/* PACKAGE */
+	static final int INDEX_INTERVAL_BYTES = 16 * 1024;
+	static final long INDEX_INTERVAL_NANOS = 1_000_000_000L;
+	static final String INDEX_SUFFIX = ".idx";
+	/* time of the bytes written before the index was created */
+	static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+	private static final int MAGIC = 0x4A49445C;
+	/* index saved without the max delay */
+	private static final int MAGIC_NO_DELAY = 0x4A49445B;
+	private long firstNanos = Long.MAX_VALUE;
+	private long lastNanos = Long.MIN_VALUE;
+	private long maxDelayNanos = 0;
+	private long[] nanos;
+	private long[] offsets;
+	private int size;
+
+	/**
+	 * constructor that create an empty index
+	 */
+	SegmentIndex() {
+		this(new long[16], new long[16], 0);
+	}
+
+	/* constructor that set the points */
+	private SegmentIndex(long[] nanos, long[] offsets, int size) {
+		this.nanos = nanos;
+		this.offsets = offsets;
+		this.size = size;
+	}
+
+	/* ################################################################################# */
+	/* START STATIC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that create the index of a segment that has bytes written without index
+	 * @param lastModifiedNanos last modified time of segment, the last of the unknown writes
+	 * @return index with the bytes already written of unknown time
+	 */
+	static SegmentIndex unknownPrefix(long lastModifiedNanos) {
+		SegmentIndex index = new SegmentIndex();
+		index.add(UNKNOWN_TIME, 0);
+		index.firstNanos = UNKNOWN_TIME;
+		index.lastNanos = lastModifiedNanos;
+		return index;
+	}
+
+	/**
+	 * method that get the index file of a segment, the same for the compressed segment
+	 * @param segment file
+	 * @return index file
+	 */
+	static File getIndexFile(File segment) {
+		String name = segment.getName();
+		name = name.substring(0, name.length() - Compression.fromFileName(name).getSuffix().length());
+		return new File(segment.getParentFile(), name + INDEX_SUFFIX);
+	}
+
+	/**
+	 * method that read the index of a segment
+	 * @param segment file
+	 * @return index, or null if the segment has no valid index
+	 */
+	static SegmentIndex read(File segment) {
+		File indexFile = getIndexFile(segment);
+		if (!indexFile.isFile()) return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			int magic = in.readInt();
+			if (magic != MAGIC && magic != MAGIC_NO_DELAY) return null;
+			long first = in.readLong();
+			long last = in.readLong();
+			long maxDelay = magic == MAGIC ? in.readLong() : 0;
+			int size = in.readInt();
+			if (size < 0) return null;
+			SegmentIndex index = new SegmentIndex(new long[Math.max(size, 16)], new long[Math.max(size, 16)], size);
+			for (int i = 0; i < size; i++) {
+				index.nanos[i] = in.readLong();
+				index.offsets[i] = in.readLong();
+			}
+			index.firstNanos = first;
+			index.lastNanos = last;
+			index.maxDelayNanos = maxDelay;
+			return index;
+		} catch (IOException e) {
+			/* an index truncated by a crash is ignored, the segment is scanned */
+			return null;
+		}
+	}
+
+	/* ################################################################################# */
+	/* END STATIC METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that register a write, adding a point if the last one is far enough in bytes or time
+	 * @param time of write in nanoseconds from epoch
+	 * @param offset where the write starts
+	 * @param delayNanos between the time of entries and their write
+	 */
+	void mark(long time, long offset, long delayNanos) {
+		if (delayNanos > maxDelayNanos) maxDelayNanos = delayNanos;
+		if (size == 0 || nanos[size - 1] == UNKNOWN_TIME || offset - offsets[size - 1] >= INDEX_INTERVAL_BYTES || time - nanos[size - 1] >= INDEX_INTERVAL_NANOS) add(time, offset);
+		if (time > lastNanos) lastNanos = time;
+		if (time < firstNanos) firstNanos = time;
+	}
+
+	/**
+	 * method that check if the segment has writes in a range of time
+	 * @param fromNanos start of range, inclusive
+	 * @param toNanos end of range, inclusive
+	 * @return true if the segment can have entries in the range
+	 */
+	boolean overlaps(long fromNanos, long toNanos) {
+		return size > 0 && firstNanos <= writtenBefore(toNanos) && lastNanos >= fromNanos;
+	}
+
+	/**
+	 * method that get the offset from where the entries of a range start,
+	 * an entry is never written before its time
+	 * @param fromNanos start of range
+	 * @return offset of the last point written before the range
+	 */
+	long seekOffset(long fromNanos) {
+		long offset = 0;
+		for (int i = 0; i < size && nanos[i] < fromNanos; i++) offset = offsets[i];
+		return offset;
+	}
+
+	/**
+	 * method that get the offset from where all the writes are after a range
+	 * @param toNanos end of range
+	 * @return offset of the first point written after the range, or Long.MAX_VALUE
+	 */
+	long stopOffset(long toNanos) {
+		long writtenTo = writtenBefore(toNanos);
+		for (int i = 0; i < size; i++) if (nanos[i] > writtenTo) return offsets[i];
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * method that get the time of the bytes at an offset, with the granularity of the index
+	 * @param offset of bytes
+	 * @return time of the write of the point before the offset, or the first known time
+	 */
+	long timeAt(long offset) {
+		int i = size - 1;
+		while (i > 0 && offsets[i] > offset) i--;
+		/* the bytes of unknown time were written before the first known write */
+		if (i >= 0 && nanos[i] == UNKNOWN_TIME) return i + 1 < size ? nanos[i + 1] : lastNanos;
+		return i >= 0 ? nanos[i] : lastNanos;
+	}
+
+	/**
+	 * method that copy the index
+	 * @return copy of index
+	 */
+	SegmentIndex copy() {
+		SegmentIndex index = new SegmentIndex(Arrays.copyOf(nanos, nanos.length), Arrays.copyOf(offsets, offsets.length), size);
+		index.firstNanos = firstNanos;
+		index.lastNanos = lastNanos;
+		index.maxDelayNanos = maxDelayNanos;
+		return index;
+	}
+
+	/**
+	 * method that save the index next to the segment
+	 * @param segment file
+	 */
+	void write(File segment) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(segment))))) {
+			out.writeInt(MAGIC);
+			out.writeLong(firstNanos);
+			out.writeLong(lastNanos);
+			out.writeLong(maxDelayNanos);
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeLong(nanos[i]);
+				out.writeLong(offsets[i]);
+			}
+		} catch (IOException e) {
+			/* the segment is scanned without index */
+			e.printStackTrace();
+		}
+	}
+
+	/* method that get the last time of write of the entries up to a time, with the max delay */
+	private long writtenBefore(long toNanos) {
+		return toNanos > Long.MAX_VALUE - maxDelayNanos ? Long.MAX_VALUE : toNanos + maxDelayNanos;
+	}
+
+	/* method that add a point */
+	private void add(long time, long offset) {
+		if (size == nanos.length) {
+			nanos = Arrays.copyOf(nanos, size << 1);
+			offsets = Arrays.copyOf(offsets, size << 1);
+		}
+		nanos[size] = time;
+		offsets[size] = offset;
+		size++;
+	}
+}
@@ -0,0 +1,191 @@
+package jogger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import exception.LogFileException;
+
+/**
+ * This class run the queries over the segments of a log.
+ * The sparse indexes are used to skip the segments out of range and to seek
+ * near the start of range. The time of debug and error entries is read from the entries,
+ * the plain lines have no time and they are dated by the index, with its granularity
+ * @author Andrea Serra
+ *
+ */
+final class SegmentQuery {
+	private static final String UNBL_QUERY_MSGFRMT = "Unable to query the log file '{0}'.\nError message: {1}";
+	/* the timestamps of every format: ISO, compact and epoch millis, of 13 digits so a plain line starting with a number is not a header */
+	private static final String TIMESTAMP = "(\\d{4}-\\d{2}-\\d{2}T[\\d:.]+|\\d{8}T\\d{6}\\.\\d{3}|\\d{13})";
+	private static final Pattern DEBUG_HEADER = Pattern.compile(TIMESTAMP + " :: ");
+	private static final Pattern ERROR_HEADER = Pattern.compile("Date: " + TIMESTAMP + " -- Error message: ");
+
+	private final LogQuery query;
+	private final long fromNanos;
+	private final long toNanos;
+	private final ArrayList<String> results = new ArrayList<String>();
+
+	/* entry of text segments in building */
+	private StringBuilder entryText = null;
+	private long entryNanos;
+	private byte entryLevel;
+
+	private SegmentQuery(LogQuery query) {
+		this.query = query;
+		this.fromNanos = query.getFromNanos();
+		this.toNanos = query.getToNanos();
+	}
+
+	/**
+	 * method that run a query on the segments of a writer
+	 * @param writer of segments
+	 * @param query to be run
+	 * @return entries rendered with the text layout, from the oldest to the newest
+	 * @throws LogFileException
+	 */
+	static List<String> run(SegmentWriter writer, LogQuery query) throws LogFileException {
+		SegmentQuery segmentQuery = new SegmentQuery(query);
+		for (File segment : writer.listSegments()) {
+			if (segmentQuery.isFull()) break;
+			SegmentIndex index = writer.getIndex(segment);
+			if (index != null && !index.overlaps(segmentQuery.fromNanos, segmentQuery.toNanos)) continue;
+
+			try {
+				segmentQuery.scan(resolve(segment), index);
+			} catch (FileNotFoundException e) {
+				/* removed while the query was running */
+			} catch (IOException e) {
+				throw new LogFileException(MessageFormat.format(UNBL_QUERY_MSGFRMT, segment.getPath(), e.getMessage()));
+			}
+		}
+		return segmentQuery.results;
+	}
+
+	/* method that get the file of a segment, it could be compressed after the listing */
+	private static File resolve(File segment) {
+		if (segment.exists() || Compression.fromFileName(segment.getName()) != Compression.NONE) return segment;
+		for (Compression compression : Compression.values()) {
+			File compressed = new File(segment.getPath() + compression.getSuffix());
+			if (compressed.exists()) return compressed;
+		}
+		return segment;
+	}
+
+	/* method that scan a segment from the offset of range */
+	private void scan(File segment, SegmentIndex index) throws IOException {
+		long start = index == null ? 0 : index.seekOffset(fromNanos);
+		long stop = index == null ? Long.MAX_VALUE : index.stopOffset(toNanos);
+		if (BinaryRecordDecoder.isBinarySegment(segment)) scanRecords(segment, start, stop);
+		else scanLines(segment, index, start, stop);
+	}
+
+	/* method that scan the records of a binary segment */
+	private void scanRecords(File segment, long start, long stop) throws IOException {
+		try (BinaryRecordDecoder decoder = new BinaryRecordDecoder(JoggerReader.openInputStream(segment))) {
+			decoder.skipTo(start);
+			LogRecord record;
+			while (!isFull() && (record = decoder.readRecord()) != null && decoder.getRecordOffset() < stop) {
+				String text = trimNewLines(record.toText());
+				if (query.matches(record.getEpochNanos(), record.getLevel(), text)) results.add(text);
+			}
+		}
+	}
+
+	/* method that scan the lines of a text segment, grouping the lines of entries */
+	private void scanLines(File segment, SegmentIndex index, long start, long stop) throws IOException {
+		long fallbackNanos = segment.lastModified() * 1_000_000L;
+		byte[] line = new byte[256];
+		long offset = start;
+		entryText = null;
+
+		try (InputStream in = JoggerReader.openInputStream(segment, start)) {
+			while (!isFull()) {
+				long lineOffset = offset;
+				int length = 0;
+				int b;
+				while ((b = in.read()) >= 0) {
+					offset++;
+					if (b == '\n') break;
+					if (length == line.length) line = Arrays.copyOf(line, length << 1);
+					line[length++] = (byte) b;
+				}
+				/* end of segment, or padding of a mapped segment */
+				if ((b < 0 && length == 0) || (length > 0 && line[0] == 0)) break;
+				if (length > 0 && line[length - 1] == '\r') length--;
+				String text = new String(line, 0, length, StandardCharsets.UTF_8);
+
+				/* the lines after a debug or error header belong to its entry */
+				long nanos = parseHeader(DEBUG_HEADER, text);
+				byte level = LogRecord.LEVEL_DEBUG;
+				if (nanos == SegmentIndex.UNKNOWN_TIME) {
+					nanos = parseHeader(ERROR_HEADER, text);
+					level = LogRecord.LEVEL_ERROR;
+				}
+				if (nanos == SegmentIndex.UNKNOWN_TIME) {
+					if (entryText != null && entryLevel != LogRecord.LEVEL_PLAIN) {
+						entryText.append('\n').append(text);
+						continue;
+					}
+					nanos = index == null ? fallbackNanos : index.timeAt(lineOffset);
+					level = LogRecord.LEVEL_PLAIN;
+				}
+
+				/* all the entries from here are written after the range */
+				if (lineOffset >= stop) break;
+				emitEntry();
+				entryText = new StringBuilder(text);
+				entryNanos = nanos;
+				entryLevel = level;
+			}
+		}
+		emitEntry();
+	}
+
+	/* method that add the entry in building if it match */
+	private void emitEntry() {
+		if (entryText == null || isFull()) return;
+		String text = trimNewLines(entryText);
+		if (query.matches(entryNanos, entryLevel, text)) results.add(text);
+		entryText = null;
+	}
+
+	/* method that check if the max results are reached */
+	private boolean isFull() {
+		return results.size() >= query.getMaxResults();
+	}
+
+	/**
+	 * method that get the time of an entry, from the record or from the header of its text
+	 * @param entry line or record
+	 * @return time of entry, UNKNOWN_TIME for the plain lines
+	 */
+	static long getEntryNanos(Object entry) {
+		if (entry instanceof LogRecord) return ((LogRecord) entry).getEpochNanos();
+		CharSequence text = SegmentWriter.toLine(entry);
+		long nanos = parseHeader(DEBUG_HEADER, text);
+		return nanos != SegmentIndex.UNKNOWN_TIME ? nanos : parseHeader(ERROR_HEADER, text);
+	}
+
+	/* method that get the time of a header, UNKNOWN_TIME if the line is not a header */
+	private static long parseHeader(Pattern header, CharSequence line) {
+		Matcher m = header.matcher(line);
+		if (!m.lookingAt()) return SegmentIndex.UNKNOWN_TIME;
+		return TimestampRenderer.parse(m.group(1));
+	}
+
+	/* method that remove the new lines at the end of entry */
+	private static String trimNewLines(CharSequence text) {
+		int end = text.length();
+		while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) end--;
+		return text.subSequence(0, end).toString();
+	}
+}
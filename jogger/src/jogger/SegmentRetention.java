@@ -0,0 +1,178 @@
+package jogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class delete the oldest closed segments of a writer on the maintenance executor,
+ * keeping a max number of segments, a max total of bytes and a max age.
+ * The closed segments are tracked in memory, the log directory is listed only when the writer is opened
+ * @author Andrea Serra
+ *
+ */
+final class SegmentRetention {
+	private static final long MIN_CHECK_MILLIS = 1000;
+	private static final long MAX_CHECK_MILLIS = 60000;
+	private final SegmentWriter writer;
+	private final ArrayDeque<Long> closed = new ArrayDeque<Long>();
+	private long activeSequence = -1;
+	private int maxSegments = 0;
+	private long maxTotalBytes = 0;
+	private long maxAgeMillis = 0;
+	private ScheduledFuture<?> periodicCheck = null;
+
+	/**
+	 * constructor that set the writer of segments
+	 * @param writer of segments
+	 */
+	SegmentRetention(SegmentWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * method that set the limits, 0 for no limit
+	 * @param maxSegments max number of segments, with the active one
+	 * @param maxTotalBytes max bytes of segments, with the active one
+	 * @param maxAgeMillis max time from the last write of a closed segment
+	 */
+	synchronized void setLimits(int maxSegments, long maxTotalBytes, long maxAgeMillis) {
+		this.maxSegments = maxSegments;
+		this.maxTotalBytes = maxTotalBytes;
+		this.maxAgeMillis = maxAgeMillis;
+
+		/* the segments expire also without rotations */
+		if (periodicCheck != null) periodicCheck.cancel(false);
+		periodicCheck = null;
+		if (maxAgeMillis > 0) {
+			long period = Math.max(MIN_CHECK_MILLIS, Math.min(maxAgeMillis, MAX_CHECK_MILLIS));
+			periodicCheck = JoggerExecutors.maintenance().scheduleWithFixedDelay(this::enforce, period, period, TimeUnit.MILLISECONDS);
+		}
+		enforceLater();
+	}
+
+	/**
+	 * method that get the limits
+	 * @return max number of segments, max total bytes and max age
+	 */
+	synchronized List<Object> getLimits() {
+		return Arrays.<Object>asList(maxSegments, maxTotalBytes, maxAgeMillis);
+	}
+
+	/**
+	 * method that set the segments found when the writer is opened
+	 * @param sequences of closed segments, from the oldest to the newest
+	 * @param active sequence of active segment
+	 */
+	synchronized void opened(Iterable<Long> sequences, long active) {
+		closed.clear();
+		for (Long sequence : sequences) if (sequence < active) closed.add(sequence);
+		activeSequence = active;
+		enforceLater();
+	}
+
+	/**
+	 * method that register a rotation and enforce the limits in background
+	 * @param closedSequence sequence of segment closed
+	 * @param active sequence of new active segment
+	 */
+	synchronized void rotated(long closedSequence, long active) {
+		closed.add(closedSequence);
+		activeSequence = active;
+		enforceLater();
+	}
+
+	/**
+	 * method that stop the periodic check
+	 */
+	synchronized void close() {
+		if (periodicCheck != null) periodicCheck.cancel(false);
+		periodicCheck = null;
+	}
+
+	/* method that schedule the enforcement, after the compressions already scheduled */
+	private void enforceLater() {
+		if (maxSegments > 0 || maxTotalBytes > 0 || maxAgeMillis > 0) JoggerExecutors.maintenance().execute(this::enforce);
+	}
+
+	/* method that delete the oldest segments until the limits are respected */
+	private void enforce() {
+		int segmentsLimit;
+		long bytesLimit;
+		long ageLimit;
+		ArrayList<Long> sequences;
+		synchronized (this) {
+			segmentsLimit = maxSegments;
+			bytesLimit = maxTotalBytes;
+			ageLimit = maxAgeMillis;
+			sequences = new ArrayList<Long>(closed);
+			sequences.add(activeSequence);
+		}
+
+		/* the size of segments is read from the files, they change with the compression */
+		long totalBytes = 0;
+		if (bytesLimit > 0) for (long sequence : sequences) totalBytes += getSize(sequence);
+		long now = System.currentTimeMillis();
+
+		while (true) {
+			long oldest;
+			int segments;
+			synchronized (this) {
+				if (closed.isEmpty()) return;
+				oldest = closed.peekFirst();
+				segments = closed.size() + 1;
+			}
+
+			boolean tooMany = segmentsLimit > 0 && segments > segmentsLimit;
+			boolean tooBig = bytesLimit > 0 && totalBytes > bytesLimit;
+			boolean expired = ageLimit > 0 && now - getLastModified(oldest) > ageLimit;
+			if (!tooMany && !tooBig && !expired) return;
+
+			try {
+				totalBytes -= delete(oldest);
+			} catch (IOException e) {
+				/* tried again on next enforcement */
+				e.printStackTrace();
+				return;
+			}
+			synchronized (this) {
+				closed.remove(oldest);
+			}
+		}
+	}
+
+	/* method that get the bytes of a segment, compressed or not */
+	private long getSize(long sequence) {
+		long size = 0;
+		File segment = writer.getSegmentFile(sequence);
+		for (Compression compression : Compression.values()) size += new File(segment.getPath() + compression.getSuffix()).length();
+		return size;
+	}
+
+	/* method that get the time of last write of a segment, compressed or not */
+	private long getLastModified(long sequence) {
+		File segment = writer.getSegmentFile(sequence);
+		long lastModified = 0;
+		for (Compression compression : Compression.values()) lastModified = Math.max(lastModified, new File(segment.getPath() + compression.getSuffix()).lastModified());
+		return lastModified;
+	}
+
+	/* method that delete a segment with its index, return the bytes deleted */
+	private long delete(long sequence) throws IOException {
+		File segment = writer.getSegmentFile(sequence);
+		long deleted = 0;
+		for (Compression compression : Compression.values()) {
+			File file = new File(segment.getPath() + compression.getSuffix());
+			long length = file.length();
+			if (Files.deleteIfExists(file.toPath())) deleted += length;
+		}
+		Files.deleteIfExists(SegmentIndex.getIndexFile(segment).toPath());
+		return deleted;
+	}
+}
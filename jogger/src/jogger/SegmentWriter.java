@@ -0,0 +1,671 @@
+package jogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import exception.LogFileException;
+
+/**
+ * This class keep open the active segment of a log and rotate it
+ * using the bytes it has written, without listing the log directory again
+ * @author Andrea Serra
+ *
+ */
+class SegmentWriter {
+	private static final String UNBL_WORK_FILE_MSGFRMT = "Unable to work on log file '{0}'.\nError message: {1}";
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+	private static final int MAX_KEPT_BUFFER_SIZE = 1 << 20;
+	private ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+	/* lines of the batch in encoding, rendered once */
+	private final ArrayList<CharSequence> lines = new ArrayList<CharSequence>();
+	private ScheduledFuture<?> periodicSync = null;
+	private volatile boolean dirty = false;
+	private SegmentIndex index = null;
+	private final SegmentRetention retention = new SegmentRetention(this);
+	private long periodEndMillis = Long.MAX_VALUE;
+	private Future<FileChannel> prepared = null;
+	private JoggerMetrics metrics = null;
+	private boolean closed = false;
+
+	/* PROTECTED */
+	protected final File logDir;
+	protected final String fileNameLog;
+	protected final String fileType;
+	protected final Pattern segmentPattern;
+	protected volatile int maxSizeBytes;
+	protected Durability durability = Durability.NONE;
+	protected long fsyncIntervalMillis = 0;
+	protected volatile Compression compression = Compression.NONE;
+	protected volatile RotationPolicy rotationPolicy = RotationPolicy.SIZE;
+	protected FileChannel channel;
+	protected File activeFile;
+	protected long activeSize;
+	protected long sequence;
+	/* segment created in background, not yet a segment of log */
+	protected volatile File preparedFile = null;
+
+	/**
+	 * constructor that set the directory and the name of the segments
+	 * @param logDir where the segments are located
+	 * @param fileNameLog prefix and name of log, like "log_jogger-"
+	 * @param fileType extension of segments
+	 * @param maxSizeBytes of segments
+	 */
+	SegmentWriter(File logDir, String fileNameLog, String fileType, int maxSizeBytes) {
+		this.logDir = logDir;
+		this.fileNameLog = fileNameLog;
+		this.fileType = fileType;
+		this.maxSizeBytes = maxSizeBytes;
+		this.segmentPattern = Pattern.compile(Pattern.quote(fileNameLog) + "(?:([\\d]{8})T([\\d]{2})-)?([\\d]{6,18})" + Pattern.quote(fileType) + "(\\.gz|\\.lzf)?");
+	}
+
+	/* ################################################################################# */
+	/* START GET AND SET */
+	/* ################################################################################# */
+
+	int getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+	void setMaxSizeBytes(int maxSizeBytes) {
+		this.maxSizeBytes = maxSizeBytes;
+	}
+	Durability getDurability() {
+		return durability;
+	}
+	Compression getCompression() {
+		return compression;
+	}
+	void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	RotationPolicy getRotationPolicy() {
+		return rotationPolicy;
+	}
+
+	/**
+	 * method that set the policy of rotation, the active segment is rotated at the end of its period
+	 * @param rotationPolicy policy of rotation
+	 */
+	void setRotationPolicy(RotationPolicy rotationPolicy) {
+		writeLock.lock();
+		try {
+			this.rotationPolicy = rotationPolicy;
+			if (channel != null) periodEndMillis = rotationPolicy.getPeriodEnd(System.currentTimeMillis());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that set the retention of segments, 0 for no limit
+	 * @param maxSegments max number of segments, with the active one
+	 * @param maxTotalBytes max bytes of segments, with the active one
+	 * @param maxAgeMillis max time from the last write of a closed segment
+	 */
+	void setRetention(int maxSegments, long maxTotalBytes, long maxAgeMillis) {
+		retention.setLimits(maxSegments, maxTotalBytes, maxAgeMillis);
+	}
+
+	/**
+	 * method that set the metrics where the writes are counted, before the first write
+	 * @param metrics of log
+	 */
+	void setMetrics(JoggerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * method that set the durability policy
+	 * @param durability policy
+	 * @param fsyncIntervalMillis interval between the syncs of periodic policy
+	 */
+	void setDurability(Durability durability, long fsyncIntervalMillis) {
+		writeLock.lock();
+		try {
+			this.durability = durability;
+			this.fsyncIntervalMillis = fsyncIntervalMillis;
+			if (periodicSync != null) periodicSync.cancel(false);
+			periodicSync = null;
+			if (durability == Durability.PERIODIC) periodicSync = JoggerExecutors.background().scheduleWithFixedDelay(this::syncIfDirty, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that get the settings of writer
+	 * @return max size, durability, fsync interval, compression, rotation policy and the limits of retention
+	 */
+	List<Object> getSettings() {
+		ArrayList<Object> settings = new ArrayList<Object>();
+		writeLock.lock();
+		try {
+			settings.addAll(Arrays.asList(maxSizeBytes, durability, fsyncIntervalMillis, compression, rotationPolicy));
+		} finally {
+			writeLock.unlock();
+		}
+		settings.addAll(retention.getLimits());
+		return settings;
+	}
+
+	/* ################################################################################# */
+	/* END GET AND SET */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START WRITE METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that append the entries at the end of the active segment
+	 * @param entries to be written, lines or records
+	 * @throws LogFileException
+	 */
+	void write(List<?> entries) throws LogFileException {
+		writeLock.lock();
+		try {
+			/* open on first write, rotate if the active segment is full or its period is over */
+			if (channel == null) open();
+			ByteBuffer bytes = encode(entries);
+			if (System.currentTimeMillis() >= periodEndMillis || needsRotation(bytes.remaining())) {
+				/* encoded again, the encoding can depend on the segment */
+				rotate();
+				bytes = encode(entries);
+			}
+			long now = LogRecord.nowEpochNanos();
+			index.mark(now, activeSize, getDelay(entries, now));
+			int length = bytes.remaining();
+			writeBytes(bytes);
+			if (metrics != null) metrics.written(entries.size(), length);
+
+			/* apply the durability policy to the batch */
+			if (durability == Durability.BATCH) force();
+			else if (durability == Durability.PERIODIC) dirty = true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that return the active segment, opening it if needed
+	 * @return active segment
+	 * @throws LogFileException
+	 */
+	File getActiveFile() throws LogFileException {
+		writeLock.lock();
+		try {
+			if (channel == null) open();
+			return activeFile;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that get the active segment with the bytes written on it, opening it if needed
+	 * @return active segment and its written size
+	 * @throws LogFileException
+	 */
+	Map.Entry<File, Long> getActiveEnd() throws LogFileException {
+		writeLock.lock();
+		try {
+			if (channel == null) open();
+			return new AbstractMap.SimpleImmutableEntry<File, Long>(activeFile, activeSize);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that list the segments in the log directory, sorted from the oldest to the newest
+	 * @return list of segments
+	 * @throws LogFileException
+	 */
+	List<File> listSegments() throws LogFileException {
+		String[] fileList = logDir.list();
+		if (fileList == null) throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logDir.getPath(), "Unable to list the directory."));
+
+		/* one file per sequence, the uncompressed one while the compression is completing, sorted by number */
+		TreeMap<Long, String> segments = new TreeMap<Long, String>();
+		File prepared = preparedFile;
+		for (String fname : fileList) {
+			long seq = parseSequence(fname);
+			if (seq < 0 || (prepared != null && prepared.getName().equals(fname))) continue;
+			String other = segments.get(seq);
+			if (other == null || other.length() > fname.length()) segments.put(seq, fname);
+		}
+
+		ArrayList<File> files = new ArrayList<File>(segments.size());
+		for (String fname : segments.values()) files.add(new File(logDir, fname));
+		return files;
+	}
+
+	/**
+	 * method that get the sparse index of a segment
+	 * @param segment file
+	 * @return index of segment, or null if the segment has no index
+	 */
+	SegmentIndex getIndex(File segment) {
+		writeLock.lock();
+		try {
+			/* the index of active segment is saved only on close */
+			if (index != null && segment.equals(activeFile)) return index.copy();
+		} finally {
+			writeLock.unlock();
+		}
+		return SegmentIndex.read(segment);
+	}
+
+	/**
+	 * method that get the sequence number of a segment
+	 * @param fileName of segment
+	 * @return sequence number, or -1 if the file is not a segment of this log
+	 */
+	long parseSequence(String fileName) {
+		Matcher m = segmentPattern.matcher(fileName);
+		if (!m.matches()) return -1;
+		if (m.group(1) == null) return Long.parseLong(m.group(3));
+		return Long.parseLong(m.group(1) + m.group(2)) * RotationPolicy.SEQUENCES_PER_PERIOD + Long.parseLong(m.group(3));
+	}
+
+	/**
+	 * method that check if the writer is closed
+	 * @return true if the writer is closed, false otherwise
+	 */
+	boolean isClosed() {
+		writeLock.lock();
+		try {
+			return closed;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * method that close the active segment
+	 */
+	void close() {
+		writeLock.lock();
+		try {
+			if (periodicSync != null) periodicSync.cancel(false);
+			periodicSync = null;
+			retention.close();
+			closeActive();
+			saveIndex();
+			discardPrepared();
+			/* a closed writer is not opened again, the loggers write on the new writer of target */
+			closed = true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/* ################################################################################# */
+	/* END WRITE METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PROTECTED METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that check if the active segment must be rotated before a write
+	 * @param length of bytes to be written
+	 * @return true if the segment must be rotated, false otherwise
+	 */
+	protected boolean needsRotation(int length) {
+		/* the segment never exceed the max size, an entry bigger than a segment is written on an empty segment */
+		return rotationPolicy.isBySize() && activeSize > 0 && activeSize + length > maxSizeBytes;
+	}
+
+	/**
+	 * method that write the bytes on the active segment
+	 * @param bytes to be written
+	 * @throws LogFileException
+	 */
+	protected void writeBytes(ByteBuffer bytes) throws LogFileException {
+		try {
+			while (bytes.hasRemaining()) activeSize += channel.write(bytes);
+		} catch (IOException e) {
+			throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, activeFile.getPath(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * method that sync the active segment on the storage
+	 * @throws LogFileException
+	 */
+	protected void force() throws LogFileException {
+		try {
+			channel.force(false);
+			dirty = false;
+		} catch (IOException e) {
+			throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, activeFile.getPath(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * method that open a segment for append and set it as active
+	 * @param file to be opened
+	 * @throws LogFileException
+	 */
+	protected void openSegment(File file) throws LogFileException {
+		try {
+			FileChannel preparedChannel = takePrepared(file);
+			channel = preparedChannel != null ? preparedChannel : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			activeSize = channel.size();
+			activeFile = file;
+		} catch (IOException e) {
+			throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, file.getPath(), e.getMessage()));
+		}
+
+		/* create the following segment in background, the rotation only swap the channel */
+		prepareNext(getSegmentFile(predictNextSequence()));
+	}
+
+	/**
+	 * method that close the active segment
+	 */
+	protected void closeActive() {
+		if (channel == null) return;
+		try {
+			if (durability != Durability.NONE) channel.force(false);
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+	/**
+	 * method that get the file of a segment, the number has at least six digits
+	 * and it grows past them, the segments are sorted by number.
+	 * The dated segments have the period before the number
+	 * @param sequence number of segment
+	 * @return file of segment
+	 */
+	protected File getSegmentFile(long sequence) {
+		if (sequence < RotationPolicy.DATED_SEQUENCE_MIN) return new File(logDir, fileNameLog + String.format("%06d", sequence) + fileType);
+		long period = sequence / RotationPolicy.SEQUENCES_PER_PERIOD;
+		return new File(logDir, fileNameLog + String.format("%08dT%02d-%06d", period / 100, period % 100, sequence % RotationPolicy.SEQUENCES_PER_PERIOD) + fileType);
+	}
+
+	/**
+	 * method that get the sequence of next segment, in the current period for the time based rotations
+	 * @return sequence of next segment
+	 */
+	protected long getNextSequence() {
+		long first = rotationPolicy.getFirstSequence(System.currentTimeMillis());
+		return sequence >= first ? sequence + 1 : first;
+	}
+
+	/**
+	 * method that predict the sequence of next segment, to prepare it in background
+	 * @return sequence of next segment, at the end of period if the segments are rotated only by time
+	 */
+	protected long predictNextSequence() {
+		if (rotationPolicy.isBySize() || !rotationPolicy.isByTime()) return getNextSequence();
+		return Math.max(sequence + 1, rotationPolicy.getFirstSequence(periodEndMillis == Long.MAX_VALUE ? System.currentTimeMillis() : periodEndMillis));
+	}
+
+	/**
+	 * method that wait a segment prepared in background.
+	 * On the background thread the preparation still queued is cancelled, it would wait itself
+	 * @param future of preparation
+	 * @return prepared segment, null if the preparation failed or it is cancelled, so the segment is opened inline
+	 */
+	protected static <T> T awaitPrepared(Future<T> future) {
+		if (!future.isDone() && JoggerExecutors.isBackgroundThread()) {
+			future.cancel(false);
+			return null;
+		}
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			return null;
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * method that drop the prepared segment, deleting the empty file.
+	 * It is called holding the write lock, also by the close
+	 */
+	protected void discardPrepared() {
+		if (prepared == null) return;
+		FileChannel preparedChannel = awaitPrepared(prepared);
+		File file = preparedFile;
+		prepared = null;
+		preparedFile = null;
+		if (preparedChannel == null) {
+			/* the preparation failed after the file was created */
+			if (file.length() == 0) file.delete();
+			return;
+		}
+		try {
+			boolean empty = preparedChannel.size() == 0;
+			preparedChannel.close();
+			if (empty) file.delete();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* ################################################################################# */
+	/* END PROTECTED METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that get the delay of the write from the time of the first entry, the oldest of a queued batch */
+	private static long getDelay(List<?> entries, long now) {
+		long entryNanos = entries.isEmpty() ? SegmentIndex.UNKNOWN_TIME : SegmentQuery.getEntryNanos(entries.get(0));
+		return entryNanos == SegmentIndex.UNKNOWN_TIME ? 0 : Math.max(0, now - entryNanos);
+	}
+
+	/* method that scan the directory once and open the newest segment */
+	private void open() throws LogFileException {
+		if (closed) throw new LogFileException(MessageFormat.format(UNBL_WORK_FILE_MSGFRMT, logDir.getPath(), "The writer is closed."));
+		List<File> segments = listSegments();
+
+		/* create the first segment if no one found */
+		if (segments.isEmpty()) sequence = rotationPolicy.getFirstSequence(System.currentTimeMillis());
+		else {
+			/* a compressed segment is closed, continue on the next one */
+			String newest = segments.get(segments.size() - 1).getName();
+			sequence = parseSequence(newest);
+			if (Compression.fromFileName(newest) != Compression.NONE) sequence++;
+		}
+		File file = getSegmentFile(sequence);
+		boolean created = !file.exists();
+		periodEndMillis = rotationPolicy.getPeriodEnd(System.currentTimeMillis());
+		openSegment(file);
+		startIndex(created);
+
+		/* the segments found are tracked for the retention */
+		ArrayList<Long> sequences = new ArrayList<Long>(segments.size());
+		for (File segment : segments) sequences.add(parseSequence(segment.getName()));
+		retention.opened(sequences, sequence);
+
+		/* a segment of a previous period is not continued */
+		boolean expired = sequence < rotationPolicy.getFirstSequence(System.currentTimeMillis());
+		if (expired || needsRotation(0)) rotate();
+	}
+
+	/* method used by the periodic policy, the sync is done without blocking the writers */
+	private void syncIfDirty() {
+		if (!dirty) return;
+		FileChannel active;
+		/* a writer that hold the lock can wait a segment prepared on this executor, the sync is done on next tick */
+		if (!writeLock.tryLock()) return;
+		try {
+			active = channel;
+			dirty = false;
+		} finally {
+			writeLock.unlock();
+		}
+		if (active == null) return;
+
+		try {
+			active.force(false);
+		} catch (ClosedChannelException e) {
+			/* rotated or closed, the segment is synced before closing */
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* method that start the index of the active segment, continuing the saved one */
+	private void startIndex(boolean created) {
+		if (created || activeSize == 0) {
+			/* an index left by a deleted segment with the same name */
+			SegmentIndex.getIndexFile(activeFile).delete();
+			index = new SegmentIndex();
+			return;
+		}
+		index = SegmentIndex.read(activeFile);
+		if (index == null) index = SegmentIndex.unknownPrefix(activeFile.lastModified() * 1_000_000L);
+	}
+
+	/* method that save the index of the active segment next to it */
+	private void saveIndex() {
+		if (index != null && activeFile != null) index.write(activeFile);
+		index = null;
+	}
+
+	/* method that open the next segment in background */
+	private void prepareNext(File file) {
+		discardPrepared();
+		if (file.exists()) return;
+		preparedFile = file;
+		prepared = JoggerExecutors.background().submit(() -> FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+	}
+
+	/* method that get the prepared channel if it is the requested file */
+	private FileChannel takePrepared(File file) {
+		if (prepared == null || !preparedFile.equals(file)) return null;
+		FileChannel preparedChannel = awaitPrepared(prepared);
+		prepared = null;
+		preparedFile = null;
+		return preparedChannel;
+	}
+
+	/* method that close the active segment and open the next one */
+	private void rotate() throws LogFileException {
+		File closed = activeFile;
+		long closedSequence = sequence;
+		closeActive();
+		saveIndex();
+		sequence = getNextSequence();
+		periodEndMillis = rotationPolicy.getPeriodEnd(System.currentTimeMillis());
+		openSegment(getSegmentFile(sequence));
+		startIndex(true);
+		SegmentCompressor.compressLater(closed, compression);
+		retention.rotated(closedSequence, sequence);
+		if (metrics != null) metrics.rotated();
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* ################################################################################# */
+	/* START ENCODING METHODS */
+	/* ################################################################################# */
+
+	/**
+	 * method that encode the entries in UTF-8 lines, the records are rendered as text
+	 * @param entries to be encoded
+	 * @return buffer ready to be written
+	 */
+	protected ByteBuffer encode(List<?> entries) {
+		int maxLength = 0;
+		for (Object entry : entries) {
+			CharSequence line = toLine(entry);
+			lines.add(line);
+			maxLength += line.length() * Utf8Encoder.MAX_BYTES_PER_CHAR + 1;
+		}
+
+		ByteBuffer out = clearBuffer(maxLength);
+		for (CharSequence line : lines) {
+			Utf8Encoder.encode(line, out);
+			out.put((byte) '\n');
+		}
+		lines.clear();
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * method that clear the reused buffer, growing it for big batches
+	 * and releasing it when it is too big to be kept
+	 * @param minCapacity needed
+	 * @return the cleared buffer
+	 */
+	protected ByteBuffer clearBuffer(int minCapacity) {
+		if (buffer.capacity() < minCapacity) buffer = ByteBuffer.allocate(Math.max(minCapacity, buffer.capacity() << 1));
+		else if (buffer.capacity() > MAX_KEPT_BUFFER_SIZE && minCapacity <= DEFAULT_BUFFER_SIZE) buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * method that grow the reused buffer keeping its content
+	 * @param minRemaining bytes needed after the position
+	 * @return the buffer with enough bytes remaining
+	 */
+	protected ByteBuffer ensureRemaining(int minRemaining) {
+		if (buffer.remaining() >= minRemaining) return buffer;
+		ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + minRemaining));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+		return buffer;
+	}
+
+	/**
+	 * method that get the text of an entry
+	 * @param entry line or record
+	 * @return text of entry, without new line
+	 */
+	static CharSequence toLine(Object entry) {
+		if (entry instanceof CharSequence) return (CharSequence) entry;
+		if (entry instanceof LogRecord) return ((LogRecord) entry).toText();
+		return String.valueOf(entry);
+	}
+
+	/* ################################################################################# */
+	/* END ENCODING METHODS */
+	/* ################################################################################# */
+}
@@ -0,0 +1,98 @@
+package jogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * This class send the lines on a TCP connection, like a local collector.
+ * The connection is opened on first batch and opened again on the next batch after an error,
+ * the batches sent while the collector is down are lost
+ * @author Andrea Serra
+ *
+ */
+public class SocketAppender implements Appender {
+	private static final int CHUNK_SIZE = 8192;
+	private final InetSocketAddress address;
+	private final int connectTimeoutMillis;
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+	private Socket socket = null;
+	private OutputStream out = null;
+
+	/**
+	 * constructor that set the address of collector
+	 * @param host of collector
+	 * @param port of collector
+	 */
+	public SocketAppender(String host, int port) {
+		this(host, port, 1000);
+	}
+
+	/**
+	 * constructor that set the address of collector and the timeout of connection
+	 * @param host of collector
+	 * @param port of collector
+	 * @param connectTimeoutMillis max wait for the connection
+	 */
+	public SocketAppender(String host, int port, int connectTimeoutMillis) {
+		this.address = new InetSocketAddress(host, port);
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	@Override
+	public synchronized void append(ByteBuffer bytes) throws IOException {
+		try {
+			if (out == null) connect();
+			while (bytes.hasRemaining()) {
+				int length = Math.min(bytes.remaining(), CHUNK_SIZE);
+				bytes.get(chunk, 0, length);
+				out.write(chunk, 0, length);
+			}
+		} catch (IOException e) {
+			disconnect();
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		try {
+			if (out != null) out.flush();
+		} catch (IOException e) {
+			disconnect();
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		disconnect();
+	}
+
+	/* method that open the connection */
+	private void connect() throws IOException {
+		Socket newSocket = new Socket();
+		try {
+			newSocket.setTcpNoDelay(true);
+			newSocket.connect(address, connectTimeoutMillis);
+			out = newSocket.getOutputStream();
+			socket = newSocket;
+		} catch (IOException e) {
+			newSocket.close();
+			throw e;
+		}
+	}
+
+	/* method that close the connection, the next batch open it again */
+	private void disconnect() {
+		try {
+			if (socket != null) socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		socket = null;
+		out = null;
+	}
+}
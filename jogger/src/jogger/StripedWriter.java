@@ -0,0 +1,297 @@
+package jogger;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class implements the striped mode, every thread append its entries on one of the stripes
+ * and never share a lock with the threads of other stripes.
+ * The flusher thread merge the stripes in order of time when a stripe is half full or at every interval.
+ * The entries of a thread keep their order, the entries of different threads are ordered by the time of append
+ * for each merge
+ * @author Andrea Serra
+ *
+ */
+final class StripedWriter implements BufferedEntryWriter, Runnable {
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+	private static final int FULL = -1;
+	private static final int CLOSED = -2;
+	private final Stripe[] stripes;
+	private final int mask;
+	private final long flushIntervalNanos;
+	private final WaitStrategy waitStrategy;
+	private final BatchHandler handler;
+	private final JoggerMetrics metrics;
+	private final Thread thread;
+	private final AtomicLong overflowed = new AtomicLong();
+	private final ArrayList<Object> batch = new ArrayList<Object>();
+	private volatile boolean closed = false;
+	private volatile long written = 0;
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private volatile long overflowTimeoutNanos = Long.MAX_VALUE;
+	private volatile int overflowSampleRate = 1;
+
+	/* buffer of a stripe, a ring of entries with the time of append */
+	private static final class Stripe {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Object[] entries;
+		private final long[] times;
+		private final int mask;
+		private int head = 0;
+		private int size = 0;
+		/* entries appended and entries overwritten, changed with the lock */
+		private volatile long appended = 0;
+		private volatile long overwritten = 0;
+		/* entries written by the flusher */
+		private volatile long flushed = 0;
+		/* entries copied by the flusher, used only by the flusher */
+		private final Object[] drainedEntries;
+		private final long[] drainedTimes;
+		private int drainedSize = 0;
+		private int drainedNext = 0;
+		private long overwrittenSeen = 0;
+
+		private Stripe(int capacity) {
+			this.entries = new Object[capacity];
+			this.times = new long[capacity];
+			this.mask = capacity - 1;
+			this.drainedEntries = new Object[capacity];
+			this.drainedTimes = new long[capacity];
+		}
+	}
+
+	/**
+	 * constructor that create the stripes and start the flusher thread
+	 * @param name of flusher thread
+	 * @param stripes number of stripes, rounded up to a power of two
+	 * @param stripeCapacity max entries of a stripe, rounded up to a power of two
+	 * @param flushIntervalMillis max time between two merges
+	 * @param waitStrategy used by the producers while a stripe is full
+	 * @param handler that write the merged entries
+	 * @param metrics where the entries dropped are counted
+	 */
+	StripedWriter(String name, int stripes, int stripeCapacity, long flushIntervalMillis, WaitStrategy waitStrategy, BatchHandler handler, JoggerMetrics metrics) {
+		if (stripes < 1 || stripeCapacity < 1) throw new IllegalArgumentException("Stripes and capacity must be positive");
+		int count = powerOfTwo(stripes);
+		int capacity = powerOfTwo(stripeCapacity);
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) this.stripes[i] = new Stripe(capacity);
+		this.mask = count - 1;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+		this.waitStrategy = waitStrategy;
+		this.handler = handler;
+		this.metrics = metrics;
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy, long timeoutMillis, int sampleRate) {
+		this.overflowPolicy = overflowPolicy;
+		this.overflowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.overflowSampleRate = Math.max(1, sampleRate);
+	}
+
+	@Override
+	public boolean publish(Object entry) {
+		if (closed) return false;
+		if (entry == null) entry = "null";
+
+		/* a thread always use the same stripe, so its entries keep their order */
+		Stripe stripe = stripes[(int) ((Thread.currentThread().getId() * GOLDEN_RATIO) >>> 32) & mask];
+		long start = 0;
+		boolean sampled = false;
+		while (true) {
+			int result = append(stripe, entry);
+			if (result == CLOSED) return false;
+			if (result != FULL) {
+				/* size trigger, the flusher is woken once when the stripe is half full */
+				if (result == stripe.entries.length >>> 1) LockSupport.unpark(thread);
+				return true;
+			}
+
+			/* the stripe is full */
+			LockSupport.unpark(thread);
+			OverflowPolicy policy = overflowPolicy;
+			if (policy == OverflowPolicy.DROP_NEWEST || (policy == OverflowPolicy.SAMPLE && !sampled && overflowed.getAndIncrement() % overflowSampleRate != 0)) {
+				metrics.dropped(1);
+				return true;
+			}
+			if (policy == OverflowPolicy.DROP_OLDEST) return appendOverwrite(stripe, entry);
+
+			/* wait for the flusher up to the timeout */
+			sampled = true;
+			if (start == 0) start = System.nanoTime();
+			else if (System.nanoTime() - start >= overflowTimeoutNanos) {
+				metrics.dropped(1);
+				return true;
+			}
+			waitStrategy.idle();
+		}
+	}
+
+	@Override
+	public long getQueueDepth() {
+		long depth = 0;
+		for (Stripe stripe : stripes) depth += stripe.appended - stripe.overwritten - stripe.flushed;
+		return Math.max(0, depth);
+	}
+
+	@Override
+	public void flush() {
+		long target = 0;
+		for (Stripe stripe : stripes) target += stripe.appended;
+		while (written < target && thread.isAlive()) {
+			LockSupport.unpark(thread);
+			WaitStrategy.PARK.idle();
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			boolean last = closed;
+			if (drainStripes()) {
+				merge();
+				try {
+					handler.writeBatch(batch);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+				batch.clear();
+			}
+			updateWritten();
+			if (last) break;
+			/* time trigger, or woken by the size trigger */
+			LockSupport.parkNanos(this, flushIntervalNanos);
+		}
+	}
+
+	/* ################################################################################# */
+	/* START PRIVATE METHODS */
+	/* ################################################################################# */
+
+	/* method that append an entry on the stripe, return the size of stripe, FULL or CLOSED */
+	private int append(Stripe stripe, Object entry) {
+		stripe.lock.lock();
+		try {
+			/* checked with the lock, the last drain of flusher take all the entries appended before the close */
+			if (closed) return CLOSED;
+			if (stripe.size == stripe.entries.length) return FULL;
+			int index = (stripe.head + stripe.size) & stripe.mask;
+			stripe.entries[index] = entry;
+			stripe.times[index] = System.nanoTime();
+			stripe.appended++;
+			return ++stripe.size;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/* method that append an entry on the stripe, dropping the oldest one if it is full */
+	private boolean appendOverwrite(Stripe stripe, Object entry) {
+		boolean dropped = false;
+		stripe.lock.lock();
+		try {
+			if (closed) return false;
+			if (stripe.size == stripe.entries.length) {
+				stripe.entries[stripe.head] = null;
+				stripe.head = (stripe.head + 1) & stripe.mask;
+				stripe.size--;
+				stripe.overwritten++;
+				dropped = true;
+			}
+			int index = (stripe.head + stripe.size) & stripe.mask;
+			stripe.entries[index] = entry;
+			stripe.times[index] = System.nanoTime();
+			stripe.appended++;
+			stripe.size++;
+		} finally {
+			stripe.lock.unlock();
+		}
+		if (dropped) metrics.dropped(1);
+		return true;
+	}
+
+	/* method that copy the entries of all stripes, the producers are blocked only for the copy of their stripe */
+	private boolean drainStripes() {
+		boolean drained = false;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				int size = stripe.size;
+				for (int i = 0; i < size; i++) {
+					int index = (stripe.head + i) & stripe.mask;
+					stripe.drainedEntries[i] = stripe.entries[index];
+					stripe.drainedTimes[i] = stripe.times[index];
+					stripe.entries[index] = null;
+				}
+				stripe.head = (stripe.head + size) & stripe.mask;
+				stripe.size = 0;
+				stripe.drainedSize = size;
+				stripe.drainedNext = 0;
+				stripe.overwrittenSeen = stripe.overwritten;
+				drained |= size > 0;
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return drained;
+	}
+
+	/* method that merge the entries drained in order of time, the order of a stripe is never changed */
+	private void merge() {
+		while (true) {
+			Stripe oldest = null;
+			for (Stripe stripe : stripes) {
+				if (stripe.drainedNext == stripe.drainedSize) continue;
+				if (oldest == null || stripe.drainedTimes[stripe.drainedNext] - oldest.drainedTimes[oldest.drainedNext] < 0) oldest = stripe;
+			}
+			if (oldest == null) return;
+			batch.add(oldest.drainedEntries[oldest.drainedNext]);
+			oldest.drainedEntries[oldest.drainedNext++] = null;
+		}
+	}
+
+	/* method that mark the drained entries as written, with the ones overwritten before the drain */
+	private void updateWritten() {
+		long total = 0;
+		for (Stripe stripe : stripes) {
+			if (stripe.drainedSize > 0) stripe.flushed += stripe.drainedSize;
+			stripe.drainedSize = 0;
+			stripe.drainedNext = 0;
+			total += stripe.flushed + stripe.overwrittenSeen;
+		}
+		written = total;
+	}
+
+	/* method that round up to a power of two */
+	private static int powerOfTwo(int value) {
+		int size = 1;
+		while (size < value) size <<= 1;
+		return size;
+	}
+
+	/* ################################################################################# */
+	/* END PRIVATE METHODS */
+	/* ################################################################################# */
+}
@@ -0,0 +1,25 @@
+package jogger;
+
+/**
+ * Formats of the timestamps written on the text logs, in the default zone
+ * @author Andrea Serra
+ *
+ */
+public enum TimestampFormat {
+	/** ISO local date time, like "2020-01-31T10:15:30.123456", the fraction without trailing zeros */
+	ISO,
+	/** milliseconds from epoch, like "1580465730123" */
+	EPOCH_MILLIS,
+	/** basic ISO local date time with milliseconds, like "20200131T101530.123" */
+	COMPACT;
+
+	/**
+	 * method that append a timestamp with this format, the date and the second are cached
+	 * @param out where the timestamp is appended
+	 * @param epochNanos time in nanoseconds from epoch
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder out, long epochNanos) {
+		return TimestampRenderer.append(out, epochNanos, this);
+	}
+}
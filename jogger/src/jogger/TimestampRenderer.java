@@ -0,0 +1,121 @@
+package jogger;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * This class render the timestamps of entries without allocations. The date and the second are rendered
+ * with the formatter once for every second and cached, only the digits of the fraction are appended for every entry.
+ * The default zone is read again when the second change
+ * @author Andrea Serra
+ *
+ */
+final class TimestampRenderer {
+	private static final DateTimeFormatter ISO_SECOND = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+	private static final DateTimeFormatter COMPACT_SECOND = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss");
+	private static final DateTimeFormatter COMPACT_PARSER = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss.SSS");
+	private static volatile CachedSecond isoSecond = new CachedSecond(Long.MIN_VALUE, null);
+	private static volatile CachedSecond compactSecond = new CachedSecond(Long.MIN_VALUE, null);
+
+	/* date and second rendered */
+	private static final class CachedSecond {
+		private final long epochSecond;
+		private final char[] prefix;
+
+		private CachedSecond(long epochSecond, char[] prefix) {
+			this.epochSecond = epochSecond;
+			this.prefix = prefix;
+		}
+	}
+
+	private TimestampRenderer() {
+	}
+
+	/**
+	 * method that append a timestamp
+	 * @param out where the timestamp is appended
+	 * @param epochNanos time in nanoseconds from epoch
+	 * @param format of timestamp
+	 * @return the builder
+	 */
+	static StringBuilder append(StringBuilder out, long epochNanos, TimestampFormat format) {
+		long epochSecond = Math.floorDiv(epochNanos, 1_000_000_000L);
+		int nanos = (int) Math.floorMod(epochNanos, 1_000_000_000L);
+		switch (format) {
+		case EPOCH_MILLIS:
+			return out.append(Math.floorDiv(epochNanos, 1_000_000L));
+		case COMPACT:
+			CachedSecond compact = compactSecond;
+			if (compact.epochSecond != epochSecond) compactSecond = compact = render(epochSecond, COMPACT_SECOND);
+			out.append(compact.prefix).append('.');
+			return appendDigits(out, nanos / 1_000_000, 3);
+		default:
+			CachedSecond iso = isoSecond;
+			if (iso.epochSecond != epochSecond) isoSecond = iso = render(epochSecond, ISO_SECOND);
+			out.append(iso.prefix);
+			if (nanos == 0) return out;
+
+			/* same fraction of ISO formatter, without the trailing zeros */
+			int digits = 9;
+			while (nanos % 10 == 0) {
+				nanos /= 10;
+				digits--;
+			}
+			return appendDigits(out.append('.'), nanos, digits);
+		}
+	}
+
+	/**
+	 * method that render a timestamp
+	 * @param epochNanos time in nanoseconds from epoch
+	 * @param format of timestamp
+	 * @return the timestamp
+	 */
+	static String format(long epochNanos, TimestampFormat format) {
+		return append(new StringBuilder(32), epochNanos, format).toString();
+	}
+
+	/**
+	 * method that parse a timestamp of any format
+	 * @param text of timestamp
+	 * @return time in nanoseconds from epoch, UNKNOWN_TIME if it is not a timestamp
+	 */
+	static long parse(String text) {
+		try {
+			if (text.indexOf('-') >= 0) return toEpochNanos(LocalDateTime.parse(text, ISO_SECOND));
+			if (text.indexOf('T') >= 0) return toEpochNanos(LocalDateTime.parse(text, COMPACT_PARSER));
+			return Math.multiplyExact(Long.parseLong(text), 1_000_000L);
+		} catch (DateTimeParseException | ArithmeticException | NumberFormatException e) {
+			return SegmentIndex.UNKNOWN_TIME;
+		}
+	}
+
+	/* method that render the date and the second with the formatter */
+	private static CachedSecond render(long epochSecond, DateTimeFormatter formatter) {
+		LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+		return new CachedSecond(epochSecond, formatter.format(time).toCharArray());
+	}
+
+	/* method that append a number with leading zeros */
+	private static StringBuilder appendDigits(StringBuilder out, int value, int digits) {
+		for (int divisor = pow10(digits - 1); divisor > 0; divisor /= 10) out.append((char) ('0' + value / divisor % 10));
+		return out;
+	}
+
+	/* method that get a power of ten */
+	private static int pow10(int exponent) {
+		int value = 1;
+		for (int i = 0; i < exponent; i++) value *= 10;
+		return value;
+	}
+
+	/* method that convert a local time of default zone */
+	private static long toEpochNanos(LocalDateTime localTime) {
+		ZonedDateTime time = localTime.atZone(ZoneId.systemDefault());
+		return time.toEpochSecond() * 1_000_000_000L + time.getNano();
+	}
+}
@@ -0,0 +1,55 @@
+package jogger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class encode the characters in UTF-8 directly in a byte buffer,
+ * without intermediate strings or arrays
+ * @author Andrea Serra
+ *
+ */
+final class Utf8Encoder {
+	/** max number of bytes of a char, a surrogate pair take 4 bytes for 2 chars */
+	static final int MAX_BYTES_PER_CHAR = 3;
+	private static final byte REPLACEMENT = '?';
+
+	private Utf8Encoder() {
+	}
+
+	/**
+	 * method that encode the characters at the position of the buffer,
+	 * the buffer must have at least MAX_BYTES_PER_CHAR bytes remaining for each char
+	 * @param chars to be encoded
+	 * @param buffer heap buffer where the bytes are written
+	 */
+	static void encode(CharSequence chars, ByteBuffer buffer) {
+		byte[] dst = buffer.array();
+		int pos = buffer.arrayOffset() + buffer.position();
+		int length = chars.length();
+
+		for (int i = 0; i < length; i++) {
+			char c = chars.charAt(i);
+			if (c < 0x80) {
+				dst[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				dst[pos++] = (byte) (0xC0 | (c >> 6));
+				dst[pos++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				/* a valid pair take 4 bytes, a lone surrogate is replaced */
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+					dst[pos++] = (byte) (0xF0 | (codePoint >> 18));
+					dst[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					dst[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					dst[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else dst[pos++] = REPLACEMENT;
+			} else {
+				dst[pos++] = (byte) (0xE0 | (c >> 12));
+				dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				dst[pos++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+
+		buffer.position(pos - buffer.arrayOffset());
+	}
+}
@@ -0,0 +1,36 @@
+package jogger;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategies used by the asynchronous mode while waiting for a free slot or for new lines
+ * @author Andrea Serra
+ *
+ */
+public enum WaitStrategy {
+	/** busy spin, lowest latency and highest cpu usage */
+	SPIN,
+	/** yield the cpu to other threads between checks */
+	YIELD,
+	/** park the thread for a short time between checks */
+	PARK;
+
+	private static final long PARK_NANOS = 50_000L;
+
+	/**
+	 * method that wait for a while according to the strategy
+	 */
+	void idle() {
+		switch (this) {
+		case SPIN:
+			Thread.onSpinWait();
+			break;
+		case YIELD:
+			Thread.yield();
+			break;
+		default:
+			LockSupport.parkNanos(PARK_NANOS);
+			break;
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package jogger;
+
+/**
+ * Modes used to write the log segments
+ * @author Andrea Serra
+ *
+ */
+public enum WriterMode {
+	/** the lines are written on the file channel of the segment */
+	CHANNEL,
+	/** the segments are mapped in memory at their max size and the lines are copied in the mapping */
+	MAPPED
+}
@@ -0,0 +1,55 @@
+package jogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the appenders that fail, they must not stop their thread
+ * @author Andrea Serra
+ *
+ */
+class AppenderFanOutTest {
+
+	@Test
+	void failedBatchesAreDroppedAndTheAppenderRecovers() {
+		FailingAppender appender = new FailingAppender();
+		AppenderFanOut fanOut = new AppenderFanOut();
+		fanOut.add(appender, "jogger-appender-test", 16);
+
+		fanOut.publish(Collections.singletonList("fail"));
+		fanOut.flush();
+		fanOut.publish(Collections.singletonList("line"));
+		fanOut.flush();
+
+		assertEquals(1, fanOut.getDropped());
+		assertEquals(Collections.singletonList("line\n"), appender.lines);
+		fanOut.close();
+		assertEquals(true, appender.closed);
+	}
+
+	/* appender that throw an unchecked exception on the lines that start with fail */
+	private static final class FailingAppender implements Appender {
+		private final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+		private volatile boolean closed = false;
+
+		@Override
+		public void append(ByteBuffer bytes) {
+			String line = StandardCharsets.UTF_8.decode(bytes).toString();
+			if (line.startsWith("fail")) throw new IllegalStateException("appender failure");
+			lines.add(line);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			throw new IllegalStateException("close failure");
+		}
+	}
+}
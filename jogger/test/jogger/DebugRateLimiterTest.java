@@ -0,0 +1,54 @@
+package jogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the default limit of the debug entries, applied to every template on its own
+ * @author Andrea Serra
+ *
+ */
+class DebugRateLimiterTest {
+
+	@Test
+	void templatesDoNotThrottleEachOther() {
+		HashMap<Object, Long> reports = new HashMap<Object, Long>();
+		DebugRateLimiter limiter = new DebugRateLimiter((key, suppressed) -> reports.merge(key, suppressed, Long::sum));
+		limiter.setDefaultLimit(1, 1, 1);
+
+		/* every template has its own burst of one entry */
+		for (int i = 0; i < 500; i++) assertTrue(limiter.admit("template " + i));
+		assertFalse(limiter.admit("template 0"));
+		assertFalse(limiter.admit("template 0"));
+		assertFalse(limiter.admit("template 1"));
+
+		limiter.report();
+		assertEquals(Long.valueOf(2), reports.get("template 0"));
+		assertEquals(Long.valueOf(1), reports.get("template 1"));
+	}
+
+	@Test
+	void templatesOverTheMaxAreReportedWithoutTemplate() {
+		HashMap<Object, Long> reports = new HashMap<Object, Long>();
+		DebugRateLimiter limiter = new DebugRateLimiter((key, suppressed) -> reports.merge(key, suppressed, Long::sum));
+		limiter.setDefaultLimit(1, 1, 1);
+
+		/* the limits are not idle after their entry, the templates over the max share one limit */
+		int suppressed = 0;
+		for (int i = 0; i < 3000; i++) if (!limiter.admit("template " + i)) suppressed++;
+
+		limiter.report();
+		long reported = 0;
+		for (Map.Entry<Object, Long> report : reports.entrySet()) {
+			assertEquals(null, report.getKey());
+			reported += report.getValue();
+		}
+		assertEquals(suppressed, reported);
+	}
+}
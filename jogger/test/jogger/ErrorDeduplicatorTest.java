@@ -0,0 +1,38 @@
+package jogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the bound of the windows kept by the deduplicator of exceptions
+ * @author Andrea Serra
+ *
+ */
+class ErrorDeduplicatorTest {
+
+	@Test
+	void repeatedFingerprintsAreEvictedWithTheirSummary() {
+		ConcurrentHashMap<String, Long> summaries = new ConcurrentHashMap<String, Long>();
+		ErrorDeduplicator deduplicator = new ErrorDeduplicator(3600000, (fingerprint, type, repeats, since) -> summaries.merge(fingerprint, repeats, Long::sum));
+
+		/* every fingerprint repeat once inside its window, so no window is over */
+		int fingerprints = 10000;
+		for (int i = 0; i < fingerprints; i++) {
+			String fingerprint = "fingerprint " + i;
+			assertTrue(deduplicator.shouldWrite(fingerprint, "type"));
+			deduplicator.traceWritten(fingerprint, true);
+			assertFalse(deduplicator.shouldWrite(fingerprint, "type"));
+		}
+		assertTrue(deduplicator.getWindowCount() <= 4096);
+
+		/* the repeats of the evicted windows are written on eviction, the others on flush */
+		deduplicator.flush();
+		assertEquals(fingerprints, summaries.size());
+		assertEquals(Long.valueOf(1), summaries.get("fingerprint 0"));
+	}
+}
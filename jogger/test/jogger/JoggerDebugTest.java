@@ -0,0 +1,54 @@
+package jogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the debug entries written while debug is disabled, they must not be formatted
+ * @author Andrea Serra
+ *
+ */
+class JoggerDebugTest {
+
+	@Test
+	void disabledDebugDoesNotFormatArguments() {
+		AtomicInteger formatted = new AtomicInteger();
+		Object arg = new Object() {
+			@Override
+			public String toString() {
+				formatted.incrementAndGet();
+				return "formatted";
+			}
+		};
+
+		JoggerDebug jogger = new JoggerDebug("disabled");
+		assertFalse(jogger.isDebug());
+		jogger.writeLog("{0}", arg);
+		jogger.writeLog("{0} {1}", arg, arg);
+		jogger.writeLog("{0} {1} {2}", arg, arg, arg);
+		jogger.writeLog(() -> "supplied " + arg);
+		assertEquals(0, formatted.get());
+	}
+
+	@Test
+	void disabledDebugWithRateLimitDoesNotFormatArguments() {
+		AtomicInteger formatted = new AtomicInteger();
+		Object arg = new Object() {
+			@Override
+			public String toString() {
+				formatted.incrementAndGet();
+				return "formatted";
+			}
+		};
+
+		JoggerDebug jogger = new JoggerDebug("disabled");
+		jogger.setRateLimit(1, 1, 1);
+		for (int i = 0; i < 10; i++) jogger.writeLog("{0}", arg);
+		assertEquals(0, formatted.get());
+		jogger.close();
+	}
+}
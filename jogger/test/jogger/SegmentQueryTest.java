@@ -0,0 +1,85 @@
+package jogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import exception.LogFileException;
+
+/**
+ * Tests of the queries over the segments, with entries written after their time
+ * @author Andrea Serra
+ *
+ */
+class SegmentQueryTest {
+	private static final long DELAY_NANOS = 5_000_000_000L;
+
+	@TempDir
+	File logDir;
+
+	@Test
+	void findsEntriesWrittenWithDelay() throws LogFileException {
+		long entryNanos = LogRecord.nowEpochNanos() - DELAY_NANOS;
+		SegmentWriter writer = newWriter();
+		writer.write(Arrays.asList(debugLine(entryNanos, "delayed"), debugLine(LogRecord.nowEpochNanos(), "on time")));
+
+		List<String> results = SegmentQuery.run(writer, around(entryNanos));
+		assertEquals(1, results.size());
+		assertEquals(debugLine(entryNanos, "delayed"), results.get(0));
+		writer.close();
+	}
+
+	@Test
+	void findsEntriesWrittenWithDelayInClosedSegment() throws LogFileException {
+		long entryNanos = LogRecord.nowEpochNanos() - DELAY_NANOS;
+		SegmentWriter writer = newWriter();
+		writer.write(Arrays.asList(debugLine(entryNanos, "delayed")));
+		writer.close();
+
+		/* the index is read from the file saved on close */
+		SegmentWriter reopened = newWriter();
+		List<String> results = SegmentQuery.run(reopened, around(entryNanos));
+		assertEquals(Arrays.asList(debugLine(entryNanos, "delayed")), results);
+		reopened.close();
+	}
+
+	@Test
+	void findsRecordsWrittenWithDelay() throws LogFileException {
+		long entryNanos = LogRecord.nowEpochNanos() - DELAY_NANOS;
+		SegmentWriter writer = newWriter();
+		writer.write(Arrays.asList(record(entryNanos, "delayed"), record(LogRecord.nowEpochNanos(), "on time")));
+
+		List<String> results = SegmentQuery.run(writer, around(entryNanos));
+		assertEquals(1, results.size());
+		writer.close();
+	}
+
+	/* method that create a writer on the temporary directory */
+	private SegmentWriter newWriter() {
+		SegmentWriter writer = new SegmentWriter(logDir, "log_query-", ".log", 1 << 20);
+		writer.setDurability(Durability.NONE, 1000);
+		return writer;
+	}
+
+	/* method that create a query of one second around a time */
+	private static LogQuery around(long nanos) {
+		Instant time = Instant.ofEpochSecond(0, nanos);
+		return new LogQuery(time.minusMillis(500), time.plusMillis(500));
+	}
+
+	/* method that create a debug record of a time */
+	private static LogRecord record(long nanos, String message) {
+		return new LogRecord(nanos, LogRecord.LEVEL_DEBUG, 1, message, new Object[0], null, null);
+	}
+
+	/* method that render a debug entry written at a time */
+	private static String debugLine(long nanos, String message) {
+		return TimestampRenderer.append(new StringBuilder(), nanos, TimestampFormat.ISO).append(" :: ").append(message).toString();
+	}
+}